@@ -0,0 +1,114 @@
+package software.mindware.taskmaster.benchmark;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import software.mindware.taskmaster.TaskmasterApplication;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Boots the real application against an in-memory H2 database in MySQL mode and a temporary upload directory, so
+ * benchmarks and the load test exercise the production beans without external infrastructure.
+ */
+final class BenchmarkContext implements AutoCloseable {
+    private final Path uploadDir;
+    private final ConfigurableApplicationContext context;
+
+    private BenchmarkContext(Path uploadDir, ConfigurableApplicationContext context) {
+        this.uploadDir = uploadDir;
+        this.context = context;
+    }
+
+    static BenchmarkContext start() {
+        return start(WebApplicationType.NONE, List.of());
+    }
+
+    /**
+     * Starts the application with its web server on a random port.
+     *
+     * @param overrides {@code --key=value} arguments that replace or add to the benchmark properties
+     */
+    static BenchmarkContext startServer(List<String> overrides) {
+        return start(WebApplicationType.SERVLET, overrides);
+    }
+
+    private static BenchmarkContext start(WebApplicationType webApplicationType, List<String> overrides) {
+        try {
+            Path uploadDir = Files.createTempDirectory("taskmaster-bench-");
+            Map<String, String> properties = new HashMap<>();
+            properties.put("spring.datasource.url", "jdbc:h2:mem:bench-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+            properties.put("spring.datasource.username", "sa");
+            properties.put("spring.datasource.password", "");
+            properties.put("upload.dir", uploadDir.toString());
+            properties.put("admin.code", "bench");
+            properties.put("token.secret", "benchmark-secret");
+            properties.put("upload.storage.migrate-flat-layout", "false");
+            properties.put("logging.level.root", "WARN");
+            properties.put("server.port", "0");
+            properties.put("management.server.port", "0");
+            for (String override : overrides) {
+                int separator = override.indexOf('=');
+                properties.put(override.substring(2, separator), override.substring(separator + 1));
+            }
+
+            // Passed as command line arguments so they override the packaged application.properties
+            String[] args = properties.entrySet().stream()
+                    .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                    .toArray(String[]::new);
+            SpringApplication application = new SpringApplication(TaskmasterApplication.class);
+            application.setWebApplicationType(webApplicationType);
+            return new BenchmarkContext(uploadDir, application.run(args));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    <T> T bean(Class<T> type) {
+        return this.context.getBean(type);
+    }
+
+    int port() {
+        return ((WebServerApplicationContext) this.context).getWebServer().getPort();
+    }
+
+    Path uploadDir() {
+        return this.uploadDir;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.context.close();
+        deleteRecursively(this.uploadDir);
+    }
+
+    static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path directory, IOException exc) throws IOException {
+                Files.delete(directory);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
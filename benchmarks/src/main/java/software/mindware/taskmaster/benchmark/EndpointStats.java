@@ -0,0 +1,61 @@
+package software.mindware.taskmaster.benchmark;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Latencies, error count and transferred bytes of one endpoint during a load test. Thread safe.
+ */
+final class EndpointStats {
+    private final String name;
+    private long[] latencies = new long[1024];
+    private int count;
+    private int errors;
+    private long bytes;
+
+    EndpointStats(String name) {
+        this.name = name;
+    }
+
+    synchronized void record(long latencyNanos, boolean success, long transferredBytes) {
+        if (this.count == this.latencies.length) {
+            this.latencies = Arrays.copyOf(this.latencies, this.count * 2);
+        }
+        this.latencies[this.count++] = latencyNanos;
+        if (!success) {
+            this.errors++;
+        }
+        this.bytes += transferredBytes;
+    }
+
+    static String header() {
+        return String.format(Locale.ROOT, "%-34s %8s %8s %7s %9s %10s %10s %10s %10s",
+                "endpoint", "requests", "errors", "error%", "req/s", "p50 ms", "p99 ms", "max ms", "MB/s");
+    }
+
+    /**
+     * @param elapsedSeconds length of the whole run, used for throughput
+     */
+    synchronized String format(double elapsedSeconds) {
+        long[] sorted = Arrays.copyOf(this.latencies, this.count);
+        Arrays.sort(sorted);
+        return String.format(Locale.ROOT, "%-34s %8d %8d %6.2f%% %9.1f %10.1f %10.1f %10.1f %10.1f",
+                this.name,
+                this.count,
+                this.errors,
+                this.count == 0 ? 0 : 100.0 * this.errors / this.count,
+                this.count / elapsedSeconds,
+                percentile(sorted, 0.50) / 1e6,
+                percentile(sorted, 0.99) / 1e6,
+                (sorted.length == 0 ? 0 : sorted[sorted.length - 1]) / 1e6,
+                this.bytes / elapsedSeconds / (1024 * 1024));
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+}
@@ -0,0 +1,367 @@
+package software.mindware.taskmaster.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Simulates a live event: every team authenticates and polls {@code /challenge/current} until the challenge starts,
+ * then uploads a mix of photos and videos while it keeps polling. Meanwhile an admin exports the challenge ZIP and
+ * refreshes the submission counts. Prints latency percentiles, throughput and error rate per endpoint.
+ * <p>
+ * Without {@code --base-url} the application is started in this JVM against H2 and a temporary upload directory.
+ * Arguments this class does not recognise are passed on to that application, e.g.
+ * {@code --spring.threads.virtual.enabled=true}.
+ */
+public final class LoadTest {
+    private static final byte[] MP4_HEADER = {0, 0, 0, 0x18, 'f', 't', 'y', 'p', 'i', 's', 'o', 'm', 0, 0, 2, 0};
+    private static final String TEAM_CODE = "load-test";
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final Options options;
+    private final String runId = UUID.randomUUID().toString().substring(0, 8);
+    private final String eventTitle = "Load test " + this.runId;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, EndpointStats> stats = new ConcurrentSkipListMap<>();
+    private final AtomicLong challengeId = new AtomicLong(-1);
+    private final CountDownLatch teamsDone;
+
+    private LoadTest(String baseUrl, Options options) {
+        this.baseUrl = baseUrl;
+        this.options = options;
+        this.teamsDone = new CountDownLatch(options.teams());
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        BenchmarkContext context = null;
+        String baseUrl = options.baseUrl();
+        if (baseUrl == null) {
+            context = BenchmarkContext.startServer(options.applicationArgs());
+            baseUrl = "http://localhost:" + context.port();
+        }
+        try {
+            new LoadTest(baseUrl, options).run();
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    private void run() throws Exception {
+        setUp();
+        System.out.printf(Locale.ROOT, "%d teams x %d uploads against %s, %.0f%% videos of %s, photos of %s, %s uploads%n",
+                this.options.teams(), this.options.uploadsPerTeam(), this.baseUrl, this.options.videoShare() * 100,
+                this.options.videoSize(), this.options.imageSize(), this.options.streamUploads() ? "streamed" : "multipart");
+
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int team = 0; team < this.options.teams(); team++) {
+                int index = team;
+                executor.submit(() -> runTeam(index));
+            }
+            executor.submit(this::runCountRefreshes);
+            executor.submit(this::runExports);
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf(Locale.ROOT, "%nFinished in %.1fs%n", elapsedSeconds);
+        System.out.println(EndpointStats.header());
+        this.stats.values().forEach(endpoint -> System.out.println(endpoint.format(elapsedSeconds)));
+    }
+
+    /**
+     * Creates the teams, a challenge that is already running and the event challenge, which starts after the lead time.
+     */
+    private void setUp() throws IOException, InterruptedException {
+        for (int team = 0; team < this.options.teams(); team++) {
+            adminPost("/team", "teamName", teamName(team), "code", TEAM_CODE);
+        }
+        adminPost("/challenge/create", "title", "Warm-up " + this.runId, "description", "Running before the event",
+                "startDate", Instant.now().minusSeconds(60).toString());
+        adminPost("/challenge/create", "title", this.eventTitle, "description", "Load test event",
+                "startDate", Instant.now().plus(this.options.leadTime()).toString());
+    }
+
+    private void runTeam(int team) {
+        Random random = new Random(team);
+        try {
+            Optional<String> token = authenticate(teamName(team));
+            if (token.isEmpty()) {
+                return;
+            }
+            // Spread the teams over the poll interval like real clients that were started at different times
+            Thread.sleep(Duration.ofMillis(random.nextLong(this.options.pollInterval().toMillis() + 1)));
+            while (!pollCurrentChallenge()) {
+                Thread.sleep(this.options.pollInterval());
+            }
+            Thread uploader = Thread.ofVirtual().start(() -> upload(token.get(), random));
+            while (!uploader.join(this.options.pollInterval())) {
+                pollCurrentChallenge();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            this.teamsDone.countDown();
+        }
+    }
+
+    private Optional<String> authenticate(String teamName) throws InterruptedException {
+        String body = "{\"teamName\": \"" + teamName + "\", \"code\": \"" + TEAM_CODE + "\"}";
+        HttpRequest request = HttpRequest.newBuilder(uri("/authenticate"))
+                .header("Content-Type", "application/json")
+                .POST(BodyPublishers.ofString(body))
+                .build();
+        return send("POST /authenticate", request, 0)
+                .filter(response -> response.statusCode() == 200)
+                .map(response -> readJson(response.body()).path("token").asText());
+    }
+
+    /**
+     * @return true once the event challenge is the current one
+     */
+    private boolean pollCurrentChallenge() throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri("/challenge/current")).timeout(Duration.ofSeconds(30)).GET().build();
+        Optional<HttpResponse<String>> response = send("GET /challenge/current", request, 0);
+        if (response.isEmpty() || response.get().statusCode() != 200) {
+            return false;
+        }
+        JsonNode challenge = readJson(response.get().body());
+        if (!this.eventTitle.equals(challenge.path("title").asText())) {
+            return false;
+        }
+        this.challengeId.compareAndSet(-1, challenge.path("id").asLong());
+        return true;
+    }
+
+    private void upload(String token, Random random) {
+        try {
+            for (int i = 0; i < this.options.uploadsPerTeam(); i++) {
+                boolean video = random.nextDouble() < this.options.videoShare();
+                long size = (video ? this.options.videoSize() : this.options.imageSize()).toBytes();
+                String endpoint = (this.options.streamUploads() ? "POST /submission/stream" : "POST /submission")
+                        + (video ? " (video)" : " (photo)");
+                send(endpoint, uploadRequest(token, video, size), size);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private HttpRequest uploadRequest(String token, boolean video, long size) {
+        byte[] header = video ? MP4_HEADER : new byte[0];
+        String fileName = video ? "clip.mp4" : "photo.jpg";
+        if (this.options.streamUploads()) {
+            return HttpRequest.newBuilder(uri("/submission/stream?token=" + encode(token)))
+                    .header("Content-Type", "application/octet-stream")
+                    .POST(BodyPublishers.fromPublisher(BodyPublishers.ofInputStream(() -> new SyntheticUploadStream(header, size)), size))
+                    .build();
+        }
+        String boundary = "load-test-" + UUID.randomUUID();
+        byte[] preamble = ("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + fileName + "\"\r\n"
+                + "Content-Type: " + (video ? "video/mp4" : "image/jpeg") + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] epilogue = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        return HttpRequest.newBuilder(uri("/submission?token=" + encode(token)))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(BodyPublishers.fromPublisher(BodyPublishers.ofInputStream(() -> new SequenceInputStream(Collections.enumeration(List.of(
+                        new ByteArrayInputStream(preamble),
+                        new SyntheticUploadStream(header, size),
+                        new ByteArrayInputStream(epilogue))))), preamble.length + size + epilogue.length))
+                .build();
+    }
+
+    private void runCountRefreshes() {
+        try {
+            if (!awaitKickoff()) {
+                return;
+            }
+            do {
+                HttpRequest request = HttpRequest.newBuilder(uri("/submissions/count?adminCode=" + encode(this.options.adminCode())
+                        + "&challengeId=" + this.challengeId.get())).GET().build();
+                send("GET /submissions/count", request, 0);
+            } while (!this.teamsDone.await(this.options.countInterval().toMillis(), TimeUnit.MILLISECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Exports while uploads are coming in, then once more when all of them are in.
+     */
+    private void runExports() {
+        try {
+            if (!awaitKickoff()) {
+                return;
+            }
+            while (!this.teamsDone.await(this.options.exportInterval().toMillis(), TimeUnit.MILLISECONDS)) {
+                export();
+            }
+            export();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void export() throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri("/challenge/" + this.challengeId.get() + "/submissions?adminCode="
+                + encode(this.options.adminCode()))).GET().build();
+        long start = System.nanoTime();
+        try {
+            HttpResponse<InputStream> response = this.client.send(request, BodyHandlers.ofInputStream());
+            long bytes;
+            try (InputStream body = response.body()) {
+                bytes = body.transferTo(OutputStream.nullOutputStream());
+            }
+            record("GET /challenge/{id}/submissions", start, response.statusCode() / 100 == 2, bytes);
+        } catch (IOException e) {
+            record("GET /challenge/{id}/submissions", start, false, 0);
+        }
+    }
+
+    /**
+     * @return false if every team finished without seeing the event challenge start
+     */
+    private boolean awaitKickoff() throws InterruptedException {
+        while (this.challengeId.get() < 0 && this.teamsDone.getCount() > 0) {
+            Thread.sleep(100);
+        }
+        return this.challengeId.get() >= 0;
+    }
+
+    /**
+     * Sends a request and records its latency. Transferred bytes are only counted for successful requests.
+     *
+     * @return the response, or empty if the request failed without one
+     */
+    private Optional<HttpResponse<String>> send(String endpoint, HttpRequest request, long uploadBytes) throws InterruptedException {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = this.client.send(request, BodyHandlers.ofString());
+            boolean success = response.statusCode() / 100 == 2;
+            record(endpoint, start, success, success ? uploadBytes : 0);
+            return Optional.of(response);
+        } catch (IOException e) {
+            record(endpoint, start, false, 0);
+            return Optional.empty();
+        }
+    }
+
+    private void record(String endpoint, long startNanos, boolean success, long bytes) {
+        this.stats.computeIfAbsent(endpoint, EndpointStats::new).record(System.nanoTime() - startNanos, success, bytes);
+    }
+
+    private void adminPost(String path, String... parameters) throws IOException, InterruptedException {
+        StringBuilder query = new StringBuilder("?adminCode=").append(encode(this.options.adminCode()));
+        for (int i = 0; i < parameters.length; i += 2) {
+            query.append('&').append(parameters[i]).append('=').append(encode(parameters[i + 1]));
+        }
+        HttpRequest request = HttpRequest.newBuilder(uri(path + query)).POST(BodyPublishers.noBody()).build();
+        HttpResponse<String> response = this.client.send(request, BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("POST " + path + " failed with status " + response.statusCode());
+        }
+    }
+
+    private JsonNode readJson(String body) {
+        try {
+            return this.objectMapper.readTree(body);
+        } catch (IOException e) {
+            return this.objectMapper.missingNode();
+        }
+    }
+
+    private String teamName(int team) {
+        return "load-" + this.runId + "-" + team;
+    }
+
+    private URI uri(String pathAndQuery) {
+        return URI.create(this.baseUrl + pathAndQuery);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private record Options(String baseUrl, String adminCode, int teams, int uploadsPerTeam, DataSize imageSize,
+                           DataSize videoSize, double videoShare, boolean streamUploads, Duration leadTime,
+                           Duration pollInterval, Duration exportInterval, Duration countInterval,
+                           List<String> applicationArgs) {
+
+        static Options parse(String[] args) {
+            String baseUrl = null;
+            String adminCode = "bench";
+            int teams = 50;
+            int uploadsPerTeam = 2;
+            DataSize imageSize = DataSize.ofMegabytes(8);
+            DataSize videoSize = DataSize.ofMegabytes(200);
+            double videoShare = 0.25;
+            boolean streamUploads = false;
+            Duration leadTime = Duration.ofSeconds(15);
+            Duration pollInterval = Duration.ofSeconds(1);
+            Duration exportInterval = Duration.ofSeconds(10);
+            Duration countInterval = Duration.ofSeconds(2);
+            List<String> applicationArgs = new ArrayList<>();
+            for (String arg : args) {
+                int separator = arg.indexOf('=');
+                if (!arg.startsWith("--") || separator < 0) {
+                    throw new IllegalArgumentException("Expected --name=value but got " + arg);
+                }
+                String value = arg.substring(separator + 1);
+                switch (arg.substring(2, separator)) {
+                    case "base-url" -> baseUrl = value;
+                    case "admin-code" -> adminCode = value;
+                    case "teams" -> teams = Integer.parseInt(value);
+                    case "uploads-per-team" -> uploadsPerTeam = Integer.parseInt(value);
+                    case "image-size" -> imageSize = DataSize.parse(value);
+                    case "video-size" -> videoSize = DataSize.parse(value);
+                    case "video-share" -> videoShare = Double.parseDouble(value);
+                    case "stream-uploads" -> streamUploads = Boolean.parseBoolean(value);
+                    case "lead-time" -> leadTime = Duration.parse(value);
+                    case "poll-interval" -> pollInterval = Duration.parse(value);
+                    case "export-interval" -> exportInterval = Duration.parse(value);
+                    case "count-interval" -> countInterval = Duration.parse(value);
+                    default -> applicationArgs.add(arg);
+                }
+            }
+            return new Options(baseUrl, adminCode, teams, uploadsPerTeam, imageSize, videoSize, videoShare,
+                    streamUploads, leadTime, pollInterval, exportInterval, countInterval, applicationArgs);
+        }
+    }
+}
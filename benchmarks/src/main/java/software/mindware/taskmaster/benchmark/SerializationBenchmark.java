@@ -0,0 +1,124 @@
+package software.mindware.taskmaster.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import software.mindware.taskmaster.dto.ChallengeSummary;
+import software.mindware.taskmaster.dto.TeamSummary;
+import software.mindware.taskmaster.model.Challenge;
+import software.mindware.taskmaster.model.Submission;
+import software.mindware.taskmaster.model.Team;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the listing payloads, as entity graphs with their submissions and as the summary
+ * projections. Sizes follow a typical event: 150 teams and 20 challenges.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+    @Param({"150"})
+    public int teams;
+
+    @Param({"20"})
+    public int challenges;
+
+    @Param({"1", "5"})
+    public int submissionsPerTeamAndChallenge;
+
+    private BenchmarkContext context;
+    private ObjectMapper objectMapper;
+    private List<Challenge> challengeEntities;
+    private List<Team> teamEntities;
+    private List<ChallengeSummary> challengeSummaries;
+    private List<TeamSummary> teamSummaries;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.context = BenchmarkContext.start();
+        this.objectMapper = this.context.bean(ObjectMapper.class);
+
+        this.teamEntities = new ArrayList<>();
+        this.teamSummaries = new ArrayList<>();
+        for (long t = 1; t <= this.teams; t++) {
+            Team team = new Team();
+            team.setId(t);
+            team.setTeamName("team-" + t);
+            team.setSubmission(new ArrayList<>());
+            this.teamEntities.add(team);
+            this.teamSummaries.add(new TeamSummary(t, team.getTeamName()));
+        }
+
+        this.challengeEntities = new ArrayList<>();
+        this.challengeSummaries = new ArrayList<>();
+        long submissionId = 1;
+        for (long c = 1; c <= this.challenges; c++) {
+            Challenge challenge = new Challenge();
+            challenge.setId(c);
+            challenge.setTitle("Challenge " + c);
+            challenge.setDescription("Take a picture of the whole team doing something unexpected, number " + c);
+            challenge.setStartDate(Instant.parse("2025-06-03T15:00:00Z").plusSeconds(c * 3600));
+            challenge.setSubmissions(new ArrayList<>());
+            for (Team team : this.teamEntities) {
+                for (int s = 0; s < this.submissionsPerTeamAndChallenge; s++) {
+                    Submission submission = new Submission();
+                    submission.setId(submissionId++);
+                    submission.setTeam(team);
+                    submission.setChallenge(challenge);
+                    submission.setUploadedAt(challenge.getStartDate().plusSeconds(60L * s));
+                    submission.setFileName(c + "/ab/" + team.getTeamName() + "_" + c + "_00000000-0000-0000-0000-000000000000.mp4");
+                    challenge.getSubmissions().add(submission);
+                    team.getSubmission().add(submission);
+                }
+            }
+            this.challengeEntities.add(challenge);
+            this.challengeSummaries.add(new ChallengeSummary(c, challenge.getTitle(), challenge.getDescription(), challenge.getStartDate()));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        this.context.close();
+    }
+
+    @Benchmark
+    public byte[] challengeEntities() throws JsonProcessingException {
+        return this.objectMapper.writeValueAsBytes(this.challengeEntities);
+    }
+
+    @Benchmark
+    public byte[] challengeSummaries() throws JsonProcessingException {
+        return this.objectMapper.writeValueAsBytes(this.challengeSummaries);
+    }
+
+    @Benchmark
+    public byte[] teamEntities() throws JsonProcessingException {
+        return this.objectMapper.writeValueAsBytes(this.teamEntities);
+    }
+
+    @Benchmark
+    public byte[] teamSummaries() throws JsonProcessingException {
+        return this.objectMapper.writeValueAsBytes(this.teamSummaries);
+    }
+}
@@ -0,0 +1,60 @@
+package software.mindware.taskmaster.benchmark;
+
+import java.io.InputStream;
+import java.util.Random;
+
+/**
+ * An input stream of a given length that looks like a JPEG (or whatever header is given) to content sniffing and is
+ * otherwise filled with incompressible bytes, without holding the whole payload in memory.
+ */
+final class SyntheticUploadStream extends InputStream {
+    private static final byte[] BLOCK = new byte[64 * 1024];
+
+    static {
+        new Random(42).nextBytes(BLOCK);
+        BLOCK[0] = (byte) 0xFF;
+        BLOCK[1] = (byte) 0xD8;
+        BLOCK[2] = (byte) 0xFF;
+        BLOCK[3] = (byte) 0xE0;
+    }
+
+    private final byte[] header;
+    private final long length;
+    private long position;
+
+    SyntheticUploadStream(long length) {
+        this(new byte[0], length);
+    }
+
+    SyntheticUploadStream(byte[] header, long length) {
+        this.header = header;
+        this.length = length;
+    }
+
+    @Override
+    public int read() {
+        if (this.position >= this.length) {
+            return -1;
+        }
+        if (this.position < this.header.length) {
+            return this.header[(int) this.position++] & 0xFF;
+        }
+        return BLOCK[(int) (this.position++ % BLOCK.length)] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int count) {
+        if (this.position >= this.length) {
+            return -1;
+        }
+        int blockOffset = (int) (this.position % BLOCK.length);
+        int read = (int) Math.min(Math.min(count, BLOCK.length - blockOffset), this.length - this.position);
+        System.arraycopy(BLOCK, blockOffset, buffer, offset, read);
+        if (this.position < this.header.length) {
+            int headerBytes = (int) Math.min(read, this.header.length - this.position);
+            System.arraycopy(this.header, (int) this.position, buffer, offset, headerBytes);
+        }
+        this.position += read;
+        return read;
+    }
+}
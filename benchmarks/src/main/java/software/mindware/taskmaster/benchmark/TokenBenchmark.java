@@ -0,0 +1,89 @@
+package software.mindware.taskmaster.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.support.TransactionTemplate;
+import software.mindware.taskmaster.model.Team;
+import software.mindware.taskmaster.repository.TeamRepository;
+import software.mindware.taskmaster.service.TeamTokenService;
+import software.mindware.taskmaster.service.TeamTokenService.TeamToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token validation as done by the upload endpoints: signed tokens are checked in memory, legacy {@code teamName_uuid}
+ * tokens load the team and scan every token it was ever issued.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenBenchmark {
+    @Param({"10", "1000"})
+    public int legacyTokensPerTeam;
+
+    private BenchmarkContext context;
+    private TeamTokenService teamTokenService;
+    private TransactionTemplate transactionTemplate;
+    private String signedToken;
+    private String legacyToken;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.context = BenchmarkContext.start();
+        this.teamTokenService = this.context.bean(TeamTokenService.class);
+        this.transactionTemplate = this.context.bean(TransactionTemplate.class);
+
+        List<String> codes = new ArrayList<>();
+        for (int i = 0; i < this.legacyTokensPerTeam; i++) {
+            codes.add(UUID.randomUUID().toString());
+        }
+        Team team = new Team();
+        team.setTeamName("bench");
+        team.setCode("1234");
+        team.setAuthenticationCodes(codes);
+        team = this.context.bean(TeamRepository.class).save(team);
+
+        this.signedToken = this.teamTokenService.issue(team);
+        this.legacyToken = "bench_" + codes.get(codes.size() - 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        this.context.close();
+    }
+
+    @Benchmark
+    public Optional<TeamToken> verifySigned() {
+        return this.teamTokenService.verify(this.signedToken);
+    }
+
+    @Benchmark
+    public Optional<TeamToken> verifyLegacy() {
+        // Requests run with open-session-in-view; a transaction gives the lazy token collection the same session
+        return this.transactionTemplate.execute(status -> this.teamTokenService.verify(this.legacyToken));
+    }
+
+    @Benchmark
+    public Optional<TeamToken> rejectForged() {
+        return this.teamTokenService.verify(this.signedToken.substring(0, this.signedToken.length() - 2) + "xx");
+    }
+}
@@ -0,0 +1,67 @@
+package software.mindware.taskmaster.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import software.mindware.taskmaster.service.StreamingUploadService;
+import software.mindware.taskmaster.service.StreamingUploadService.StoredFile;
+import software.mindware.taskmaster.storage.SubmissionStorage;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write throughput of the single-pass upload path: sniffing, hashing and writing one upload into a temporary
+ * upload directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class UploadWriteBenchmark {
+    @Param({"1", "64", "512"})
+    public int sizeMb;
+
+    private BenchmarkContext context;
+    private StreamingUploadService streamingUploadService;
+    private SubmissionStorage submissionStorage;
+    private StoredFile lastStored;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.context = BenchmarkContext.start();
+        this.streamingUploadService = this.context.bean(StreamingUploadService.class);
+        this.submissionStorage = this.context.bean(SubmissionStorage.class);
+    }
+
+    @TearDown(Level.Invocation)
+    public void removeUpload() throws IOException {
+        if (this.lastStored != null) {
+            this.submissionStorage.delete(this.lastStored.fileName());
+            this.lastStored = null;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        this.context.close();
+    }
+
+    @Benchmark
+    public StoredFile store() throws IOException {
+        this.lastStored = this.streamingUploadService.store("bench", 1, new SyntheticUploadStream(this.sizeMb * 1024L * 1024L)).orElseThrow();
+        return this.lastStored;
+    }
+}
@@ -0,0 +1,78 @@
+package software.mindware.taskmaster.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import software.mindware.taskmaster.service.SubmissionArchiveWriter;
+import software.mindware.taskmaster.storage.SubmissionStorage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ZIP export throughput for one challenge, with roughly 512MB of submissions either as many small photos or as a few
+ * large videos. The archive is written to a discarding stream so only reading and zipping is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ZipExportBenchmark {
+    public enum Shape {
+        MANY_SMALL(2048, 256 * 1024),
+        FEW_LARGE(4, 128 * 1024 * 1024);
+
+        final int files;
+        final long fileSize;
+
+        Shape(int files, long fileSize) {
+            this.files = files;
+            this.fileSize = fileSize;
+        }
+    }
+
+    @Param
+    public Shape shape;
+
+    private BenchmarkContext context;
+    private SubmissionArchiveWriter archiveWriter;
+    private List<String> fileNames;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        this.context = BenchmarkContext.start();
+        this.archiveWriter = this.context.bean(SubmissionArchiveWriter.class);
+        SubmissionStorage storage = this.context.bean(SubmissionStorage.class);
+        this.fileNames = new ArrayList<>();
+        for (int i = 0; i < this.shape.files; i++) {
+            String key = storage.createKey("team" + (i % 150), 1, ".jpg");
+            storage.write(key, new SyntheticUploadStream(this.shape.fileSize));
+            this.fileNames.add(key);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        this.context.close();
+    }
+
+    @Benchmark
+    public void writeArchive() throws IOException {
+        this.archiveWriter.write(this.fileNames, OutputStream.nullOutputStream());
+    }
+}
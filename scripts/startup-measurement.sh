@@ -0,0 +1,78 @@
+#!/usr/bin/env bash
+# Measures how long the application takes to become ready and how much memory it holds at that point, so startup
+# regressions show up. Runs the given command several times and waits for the health endpoint each time:
+#
+#   ./scripts/startup-measurement.sh java -jar target/taskmaster-0.0.1-SNAPSHOT-exec.jar
+#   ./scripts/startup-measurement.sh java -XX:SharedArchiveFile=app.jsa -Dspring.aot.enabled=true -jar app.jar
+#
+# The database settings (DB_URL, DB_PORT, ...) are taken from the environment as usual. To measure a container, run
+# it detached with a fixed name and set CONTAINER to that name; RSS is then read from docker stats:
+#
+#   CONTAINER=taskmaster ./scripts/startup-measurement.sh docker run --rm -d --name taskmaster --env-file .env \
+#       -p 8080:8080 -p 8081:8081 taskmaster-api:fast
+#
+# Prints time to ready and RSS per run, and the median of both.
+set -euo pipefail
+
+HEALTH_URL=${HEALTH_URL:-http://localhost:8081/actuator/health}
+RUNS=${RUNS:-5}
+TIMEOUT_SECONDS=${TIMEOUT_SECONDS:-120}
+CONTAINER=${CONTAINER:-}
+
+if [ $# -eq 0 ]; then
+    echo "usage: $0 <command to start the application>" >&2
+    exit 1
+fi
+
+work=$(mktemp -d)
+pid=
+stop() {
+    if [ -n "$CONTAINER" ]; then
+        docker stop "$CONTAINER" > /dev/null 2>&1 || true
+    elif [ -n "$pid" ]; then
+        kill "$pid" 2>/dev/null || true
+        wait "$pid" 2>/dev/null || true
+    fi
+    pid=
+}
+trap 'stop; rm -rf "$work"' EXIT
+
+rss_kb() {
+    if [ -n "$CONTAINER" ]; then
+        docker stats --no-stream --format '{{.MemUsage}}' "$CONTAINER" | awk '{
+            v = $1; unit = v; gsub(/[0-9.]/, "", unit); sub(/[A-Za-z]+$/, "", v)
+            f = unit == "GiB" ? 1048576 : unit == "MiB" ? 1024 : 1
+            printf "%d", v * f }'
+    else
+        awk '/^VmRSS:/ { print $2 }' "/proc/$pid/status"
+    fi
+}
+
+for run in $(seq "$RUNS"); do
+    start=$(date +%s%N)
+    "$@" > "$work/run-$run.log" 2>&1 &
+    pid=$!
+    until curl -sf -o /dev/null "$HEALTH_URL"; do
+        if [ -z "$CONTAINER" ] && ! kill -0 "$pid" 2>/dev/null; then
+            echo "run $run: the application exited, see its output:" >&2
+            tail -n 20 "$work/run-$run.log" >&2
+            exit 1
+        fi
+        if [ $(( ($(date +%s%N) - start) / 1000000000 )) -ge "$TIMEOUT_SECONDS" ]; then
+            echo "run $run: not ready after ${TIMEOUT_SECONDS}s" >&2
+            exit 1
+        fi
+        sleep 0.05
+    done
+    ready_ms=$(( ($(date +%s%N) - start) / 1000000 ))
+    rss=$(rss_kb)
+    printf 'run %d: ready after %d ms, rss %d MB\n' "$run" "$ready_ms" $((rss / 1024))
+    echo "$ready_ms $rss" >> "$work/results.txt"
+    stop
+done
+
+median() {
+    sort -n | awk '{ v[NR] = $1 } END { print v[int((NR + 1) / 2)] }'
+}
+printf 'median: ready after %d ms, rss %d MB\n' "$(cut -d' ' -f1 "$work/results.txt" | median)" \
+    $(( $(cut -d' ' -f2 "$work/results.txt" | median) / 1024 ))
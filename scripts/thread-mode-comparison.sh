@@ -0,0 +1,48 @@
+#!/usr/bin/env bash
+# Compares platform-thread and virtual-thread mode under the load that hurts most during a kickoff: many slow
+# uploads holding request threads while teams poll /challenge/current.
+#
+# Start the app once with VIRTUAL_THREADS=false and once with VIRTUAL_THREADS=true (ideally with a small
+# server.tomcat.threads.max, e.g. 50, to make the effect visible) and run this script against each:
+#
+#   BASE_URL=http://localhost:8080 TEAM=teamA CODE=1234 ./scripts/thread-mode-comparison.sh
+#
+# Prints p50/p90/p99/max latency of the polls that ran while the slow uploads were in flight.
+set -euo pipefail
+
+BASE_URL=${BASE_URL:-http://localhost:8080}
+TEAM=${TEAM:?team name required}
+CODE=${CODE:?team code required}
+SLOW_UPLOADS=${SLOW_UPLOADS:-200}
+UPLOAD_SIZE_MB=${UPLOAD_SIZE_MB:-20}
+UPLOAD_RATE=${UPLOAD_RATE:-200k}
+POLLS=${POLLS:-2000}
+POLL_CONCURRENCY=${POLL_CONCURRENCY:-50}
+
+work=$(mktemp -d)
+trap 'kill $(jobs -p) 2>/dev/null || true; rm -rf "$work"' EXIT
+
+token=$(curl -sf -X POST "$BASE_URL/authenticate" -H 'Content-Type: application/json' \
+    -d "{\"teamName\": \"$TEAM\", \"code\": \"$CODE\"}" | sed -E 's/.*"token": *"([^"]+)".*/\1/')
+
+# A JPEG header followed by zeros is enough to pass content sniffing
+{ printf '\xff\xd8\xff\xe0'; head -c $((UPLOAD_SIZE_MB * 1024 * 1024)) /dev/zero; } > "$work/upload.jpg"
+
+for _ in $(seq "$SLOW_UPLOADS"); do
+    curl -s -o /dev/null --limit-rate "$UPLOAD_RATE" -X POST -H 'Content-Type: application/octet-stream' \
+        --data-binary "@$work/upload.jpg" "$BASE_URL/submission/stream?token=$token" &
+done
+sleep 2
+
+seq "$POLLS" | xargs -P "$POLL_CONCURRENCY" -I{} \
+    curl -s -o /dev/null -w '%{time_total}\n' "$BASE_URL/challenge/current" > "$work/latencies.txt"
+
+sort -n "$work/latencies.txt" | awk '
+    { v[NR] = $1 }
+    END {
+        printf "polls: %d\n", NR
+        printf "p50:   %.3fs\n", v[int(NR * 0.50) + 1]
+        printf "p90:   %.3fs\n", v[int(NR * 0.90) + 1]
+        printf "p99:   %.3fs\n", v[int(NR * 0.99) + 1]
+        printf "max:   %.3fs\n", v[NR]
+    }'
@@ -0,0 +1,73 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Creates the columns and tables that were added while the schema was still managed by {@code ddl-auto=update}:
+ * {@code team.token_epoch}, the upload limits of a challenge and {@code upload_session}. A database that ran one of
+ * those versions already has them, and one that was baselined at V1 straight from the original release does not, so
+ * each is only created where it is missing. MySQL has no {@code add column if not exists}, hence a Java migration.
+ */
+public class V5__columns_added_before_flyway extends BaseJavaMigration {
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            if (!hasColumn(connection, "team", "token_epoch")) {
+                statement.execute("alter table team add column token_epoch integer default 0 not null");
+            }
+            if (!hasColumn(connection, "challenge", "max_concurrent_uploads_per_team")) {
+                statement.execute("alter table challenge add column max_concurrent_uploads_per_team integer");
+            }
+            if (!hasColumn(connection, "challenge", "upload_bytes_per_second_per_team")) {
+                statement.execute("alter table challenge add column upload_bytes_per_second_per_team bigint");
+            }
+            if (!hasTable(connection, "upload_session")) {
+                statement.execute("""
+                        create table upload_session (
+                            id varchar(255) not null,
+                            team_id bigint,
+                            team_name varchar(255),
+                            challenge_id bigint,
+                            file_name varchar(255),
+                            content_type varchar(255),
+                            size bigint not null,
+                            received_bytes bigint not null,
+                            created_at datetime(6),
+                            updated_at datetime(6),
+                            primary key (id)
+                        )""");
+            }
+        }
+    }
+
+    private static boolean hasTable(Connection connection, String table) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet tables = metaData.getTables(connection.getCatalog(), connection.getSchema(),
+                identifier(metaData, table), null)) {
+            return tables.next();
+        }
+    }
+
+    private static boolean hasColumn(Connection connection, String table, String column) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet columns = metaData.getColumns(connection.getCatalog(), connection.getSchema(),
+                identifier(metaData, table), identifier(metaData, column))) {
+            return columns.next();
+        }
+    }
+
+    /**
+     * @return the name as the database stores unquoted identifiers, e.g. upper case on H2
+     */
+    private static String identifier(DatabaseMetaData metaData, String name) throws SQLException {
+        return metaData.storesUpperCaseIdentifiers() ? name.toUpperCase() : name;
+    }
+}
@@ -1,59 +1,143 @@
 package software.mindware.taskmaster;
 
+import io.micrometer.core.instrument.Timer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import software.mindware.taskmaster.dto.AuthRequest;
+import software.mindware.taskmaster.dto.ChallengeImportRow;
+import software.mindware.taskmaster.dto.ChallengeSummary;
 import software.mindware.taskmaster.dto.CountResponse;
+import software.mindware.taskmaster.dto.ImportResult;
+import software.mindware.taskmaster.dto.StorageUsage;
+import software.mindware.taskmaster.dto.StreamUploadResponse;
+import software.mindware.taskmaster.dto.TeamImportRow;
+import software.mindware.taskmaster.dto.TeamSummary;
+import software.mindware.taskmaster.dto.UploadLimits;
+import software.mindware.taskmaster.dto.UploadStatusResponse;
 import software.mindware.taskmaster.model.Challenge;
 import software.mindware.taskmaster.model.Submission;
 import software.mindware.taskmaster.model.Team;
+import software.mindware.taskmaster.model.UploadSession;
 import software.mindware.taskmaster.repository.ChallengeRepository;
 import software.mindware.taskmaster.repository.SubmissionRepository;
 import software.mindware.taskmaster.repository.TeamRepository;
+import software.mindware.taskmaster.service.ChallengeTimeline;
+import software.mindware.taskmaster.service.ChallengeTimeline.Schedule;
+import software.mindware.taskmaster.service.ChunkedUploadService;
+import software.mindware.taskmaster.service.ChunkedUploadService.ChunkResult;
+import software.mindware.taskmaster.service.ChunkedUploadService.ChunkStatus;
+import software.mindware.taskmaster.service.ChunkedUploadService.CompleteResult;
+import software.mindware.taskmaster.service.ChunkedUploadService.CompleteStatus;
+import software.mindware.taskmaster.service.ContentSniffer;
+import software.mindware.taskmaster.service.DeletionJob;
+import software.mindware.taskmaster.service.DeletionService;
+import software.mindware.taskmaster.service.ExportArchive;
+import software.mindware.taskmaster.service.ExportArchiveService;
+import software.mindware.taskmaster.service.ImportService;
+import software.mindware.taskmaster.service.PreviewService;
+import software.mindware.taskmaster.service.StorageUsageService;
+import software.mindware.taskmaster.service.SubmissionArchiveWriter;
+import software.mindware.taskmaster.service.SubmissionFeed;
+import software.mindware.taskmaster.service.SubmissionFileSender;
+import software.mindware.taskmaster.service.TaskmasterMetrics;
+import software.mindware.taskmaster.service.StreamingUploadService;
+import software.mindware.taskmaster.service.StreamingUploadService.StoredFile;
+import software.mindware.taskmaster.service.StreamingUploadService.TooLargeException;
+import software.mindware.taskmaster.service.TeamTokenService;
+import software.mindware.taskmaster.service.TeamTokenService.TeamToken;
+import software.mindware.taskmaster.service.UploadAdmission;
+import software.mindware.taskmaster.storage.SubmissionStorage;
 
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InputStream;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Optional;
-import java.util.UUID;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.function.Function;
 
 @RestController
 public class Controller {
+    private static final Logger log = LoggerFactory.getLogger(Controller.class);
+    private static final int DEFAULT_PAGE_SIZE = 500;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final String NEXT_AFTER_ID_HEADER = "X-Next-After-Id";
+
     private final ChallengeRepository challengeRepository;
     private final SubmissionRepository submissionRepository;
     private final TeamRepository teamRepository;
-
-    @Value("${upload.dir}")
-    private String uploadDir;
+    private final ChallengeTimeline challengeTimeline;
+    private final TeamTokenService teamTokenService;
+    private final ChunkedUploadService chunkedUploadService;
+    private final StreamingUploadService streamingUploadService;
+    private final SubmissionStorage submissionStorage;
+    private final DeletionService deletionService;
+    private final PreviewService previewService;
+    private final SubmissionArchiveWriter submissionArchiveWriter;
+    private final TaskmasterMetrics metrics;
+    private final SubmissionFileSender submissionFileSender;
+    private final SubmissionFeed submissionFeed;
+    private final UploadAdmission uploadAdmission;
+    private final ExportArchiveService exportArchiveService;
+    private final ImportService importService;
+    private final StorageUsageService storageUsageService;
 
     @Value("${admin.code}")
     private String adminCode;
 
-    public Controller(ChallengeRepository challengeRepository, SubmissionRepository submissionRepository, TeamRepository teamRepository) {
+    @Value("${challenge.cache.max-age:PT30S}")
+    private Duration challengeCacheMaxAge;
+
+    public Controller(ChallengeRepository challengeRepository, SubmissionRepository submissionRepository, TeamRepository teamRepository, ChallengeTimeline challengeTimeline, TeamTokenService teamTokenService, ChunkedUploadService chunkedUploadService, StreamingUploadService streamingUploadService, SubmissionStorage submissionStorage, DeletionService deletionService, PreviewService previewService, SubmissionArchiveWriter submissionArchiveWriter, TaskmasterMetrics metrics, SubmissionFileSender submissionFileSender, SubmissionFeed submissionFeed, UploadAdmission uploadAdmission, ExportArchiveService exportArchiveService, ImportService importService, StorageUsageService storageUsageService) {
         this.challengeRepository = challengeRepository;
         this.submissionRepository = submissionRepository;
         this.teamRepository = teamRepository;
+        this.challengeTimeline = challengeTimeline;
+        this.teamTokenService = teamTokenService;
+        this.chunkedUploadService = chunkedUploadService;
+        this.streamingUploadService = streamingUploadService;
+        this.submissionStorage = submissionStorage;
+        this.deletionService = deletionService;
+        this.previewService = previewService;
+        this.submissionArchiveWriter = submissionArchiveWriter;
+        this.metrics = metrics;
+        this.submissionFileSender = submissionFileSender;
+        this.submissionFeed = submissionFeed;
+        this.uploadAdmission = uploadAdmission;
+        this.exportArchiveService = exportArchiveService;
+        this.importService = importService;
+        this.storageUsageService = storageUsageService;
     }
 
     @Operation(summary = "Create a new team", tags = {"Administration"})
     @ApiResponse(responseCode = "200", description = "Team created successfully")
     @ApiResponse(responseCode = "403", description = "Invalid admin code")
+    @ApiResponse(responseCode = "409", description = "A team with this name already exists")
     @PostMapping("/team")
     public ResponseEntity<String> createTeam(
             @Parameter(description = "Admin code", schema = @Schema(type = "string", format = "password")) String adminCode,
@@ -65,22 +149,62 @@ public class Controller {
         Team team = new Team();
         team.setTeamName(teamName);
         team.setCode(code);
-        teamRepository.save(team);
+        try {
+            teamRepository.save(team);
+        } catch (DataIntegrityViolationException e) {
+            return ResponseEntity.status(409).body("{}");
+        }
         return ResponseEntity.ok("{}");
     }
 
-    @Operation(summary = "Get all teams", tags = {"Administration"})
+    @Operation(
+            summary = "Import teams",
+            description = "Creates many teams in one transaction. Send a JSON array, or CSV (text/csv) with the header line 'teamName,code'. If any row is invalid, nothing is imported and the errors are returned per row.",
+            tags = {"Administration"}
+    )
+    @ApiResponse(responseCode = "200", description = "Teams imported")
+    @ApiResponse(responseCode = "400", description = "Invalid rows, nothing was imported")
+    @ApiResponse(responseCode = "403", description = "Invalid admin code")
+    @ApiResponse(responseCode = "409", description = "A team with one of the names was created during the import")
+    @PostMapping(value = "/team/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> importTeams(
+            @Parameter(schema = @Schema(type = "string", format = "password")) @RequestParam String adminCode,
+            @RequestBody List<TeamImportRow> rows) {
+        if (!this.adminCode.equals(adminCode)) {
+            return ResponseEntity.status(403).body("{}");
+        }
+        try {
+            return importResponse(this.importService.importTeams(rows));
+        } catch (DataIntegrityViolationException e) {
+            return ResponseEntity.status(409).body("{}");
+        }
+    }
+
+    @Operation(hidden = true)
+    @PostMapping(value = "/team/import", consumes = "text/csv")
+    public ResponseEntity<?> importTeamsCsv(@RequestParam String adminCode, @RequestBody String csv) {
+        return importTeams(adminCode, this.importService.parseTeamsCsv(csv));
+    }
+
+    @Operation(
+            summary = "Get all teams",
+            description = "Returns teams ordered by ID, one page at a time. If more teams may follow, the " + NEXT_AFTER_ID_HEADER + " header holds the 'afterId' for the next page.",
+            tags = {"Administration"}
+    )
     @ApiResponse(responseCode = "200", description = "List of teams")
     @ApiResponse(responseCode = "403", description = "Invalid admin code")
     @GetMapping("/team")
     public ResponseEntity<?> getAllTeams(
-            @Parameter(description = "Admin code", schema = @Schema(type = "string", format = "password")) String adminCode
+            @Parameter(description = "Admin code", schema = @Schema(type = "string", format = "password")) String adminCode,
+            @Parameter(description = "Only return teams with a higher ID") @RequestParam(required = false) Long afterId,
+            @Parameter(description = "Maximum number of teams to return") @RequestParam(required = false) Integer limit
     ) {
         if (!this.adminCode.equals(adminCode)) {
             return ResponseEntity.status(403).body("{}");
         }
-        List<Team> teams = teamRepository.findAll();
-        return ResponseEntity.ok(teams);
+        int pageSize = pageSize(limit);
+        List<TeamSummary> teams = teamRepository.findSummariesAfter(afterId != null ? afterId : 0, Limit.of(pageSize));
+        return page(teams, pageSize, TeamSummary::getId);
     }
 
     @Operation(summary = "Authenticate a team and receive a token", tags = {"Team operations"})
@@ -90,16 +214,16 @@ public class Controller {
     public ResponseEntity<String> authenticate(@RequestBody AuthRequest authRequest) {
         Optional<Team> optionalTeam = this.teamRepository.findFirstByTeamName(authRequest.getTeamName());
         if (optionalTeam.isEmpty()) {
+            this.metrics.recordAuthentication(false);
             return ResponseEntity.status(403).body("{}");
         }
         Team team = optionalTeam.get();
         if (!team.getCode().equals(authRequest.getCode())) {
+            this.metrics.recordAuthentication(false);
             return ResponseEntity.status(403).body("{}");
         }
-        String token = UUID.randomUUID().toString();
-        team.getAuthenticationCodes().add(token);
-        this.teamRepository.save(team);
-        token = team.getTeamName() + "_" + token;
+        this.metrics.recordAuthentication(true);
+        String token = this.teamTokenService.issue(team);
         return ResponseEntity.ok("{\"token\": \"" + token + "\"}");
     }
 
@@ -107,81 +231,317 @@ public class Controller {
     @ApiResponse(responseCode = "200", description = "File uploaded successfully")
     @ApiResponse(responseCode = "400", description = "Invalid file type")
     @ApiResponse(responseCode = "403", description = "Authentication failed")
+    @ApiResponse(responseCode = "413", description = "Storage quota of the team or challenge exceeded")
+    @ApiResponse(responseCode = "429", description = "Upload limit reached, retry after the number of seconds in Retry-After")
     @PostMapping(value = "/submission", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<String> uploadFile(
             @Parameter(description = "Authentication token") @RequestParam("token") String token,
             @Parameter(description = "File to upload") @RequestParam("file") MultipartFile file) {
-        if (!token.contains("_")) {
+        Optional<TeamToken> optionalToken = this.teamTokenService.verify(token);
+        if (optionalToken.isEmpty()) {
             return ResponseEntity.status(403).body("{}");
         }
-        String teamName = token.split("_")[0];
-        String authCode = token.split("_")[1];
-        Optional<Team> optionalTeam = this.teamRepository.findFirstByTeamName(teamName);
-        if (optionalTeam.isEmpty()) {
+        TeamToken teamToken = optionalToken.get();
+        String teamName = teamToken.teamName();
+
+        Optional<ChallengeSummary> optionalCurrentChallenge = this.challengeTimeline.getCurrentChallenge();
+        if (optionalCurrentChallenge.isEmpty()) {
+            return ResponseEntity.status(500).body("{}");
+        }
+        ChallengeSummary currentChallenge = optionalCurrentChallenge.get();
+
+        Optional<String> contentType;
+        try (InputStream in = file.getInputStream()) {
+            byte[] header = in.readNBytes(ContentSniffer.HEADER_SIZE);
+            contentType = ContentSniffer.detect(header, header.length);
+        } catch (IOException e) {
+            log.warn("Could not read the upload of team {}", teamName, e);
+            return ResponseEntity.status(500).body("{}");
+        }
+        if (contentType.isEmpty()) {
+            return ResponseEntity.badRequest().body("{\"error\": \"Only image and video files are allowed.\"}");
+        }
+
+        Timer.Sample sample = this.metrics.startUpload(TaskmasterMetrics.UPLOAD_MULTIPART);
+        String outcome = TaskmasterMetrics.OUTCOME_ERROR;
+        try {
+            // Never the client's file name: its extension decides nothing, and it could leave the shard directory
+            String extension = ContentSniffer.extensionFor(contentType.get());
+            String fileName = this.submissionStorage.createKey(teamName, currentChallenge.getId(), extension);
+
+            Optional<Path> localPath = this.submissionStorage.localPath(fileName);
+            if (localPath.isPresent()) {
+                file.transferTo(localPath.get());
+            } else {
+                try (InputStream in = file.getInputStream()) {
+                    this.submissionStorage.write(fileName, in);
+                }
+            }
+
+            Submission submission = new Submission();
+            submission.setTeam(this.teamRepository.getReferenceById(teamToken.teamId()));
+            submission.setChallenge(this.challengeRepository.getReferenceById(currentChallenge.getId()));
+            submission.setUploadedAt(Instant.now());
+            submission.setFileName(fileName);
+            submission.setSize(file.getSize());
+            submission.setSha256(this.submissionStorage.sha256(fileName));
+            if (this.storageUsageService.save(submission).isEmpty()) {
+                this.submissionStorage.delete(fileName);
+                outcome = TaskmasterMetrics.OUTCOME_REJECTED;
+                return ResponseEntity.status(413).body("{\"error\": \"Storage quota exceeded.\"}");
+            }
+            previewService.schedule(fileName);
+            submissionFeed.submissionCreated(submission.getId(), teamToken.teamId(), currentChallenge.getId(), submission.getUploadedAt());
+            exportArchiveService.scheduleUpdate(currentChallenge.getId());
+
+            outcome = TaskmasterMetrics.OUTCOME_SUCCESS;
+            return ResponseEntity.ok("{}");
+        } catch (IOException e) {
+            log.warn("Could not store upload of team {}", teamName, e);
+            return ResponseEntity.status(500).body("{}");
+        } finally {
+            this.metrics.finishUpload(sample, TaskmasterMetrics.UPLOAD_MULTIPART, currentChallenge.getId(), file.getSize(), outcome);
+        }
+    }
+
+    @Operation(
+            summary = "Submit a file for the current challenge as a raw request body",
+            description = "Writes the body to disk in a single pass without a multipart temp file. The file type is detected from its first bytes.",
+            tags = {"Team challenges"}
+    )
+    @ApiResponse(responseCode = "200", description = "File uploaded successfully, returns its size and SHA-256")
+    @ApiResponse(responseCode = "400", description = "Invalid file type")
+    @ApiResponse(responseCode = "403", description = "Authentication failed")
+    @ApiResponse(responseCode = "413", description = "File larger than upload.max-size, or storage quota of the team or challenge exceeded")
+    @ApiResponse(responseCode = "429", description = "Upload limit reached, retry after the number of seconds in Retry-After")
+    @PostMapping(value = "/submission/stream", consumes = {MediaType.APPLICATION_OCTET_STREAM_VALUE, "image/*", "video/*"})
+    public ResponseEntity<?> streamUpload(
+            @Parameter(description = "Authentication token") @RequestParam("token") String token,
+            HttpServletRequest request) {
+        Optional<TeamToken> optionalToken = this.teamTokenService.verify(token);
+        if (optionalToken.isEmpty()) {
             return ResponseEntity.status(403).body("{}");
         }
-        Team team = optionalTeam.get();
-        if (!team.getAuthenticationCodes().contains(authCode)) {
+        TeamToken teamToken = optionalToken.get();
+
+        Optional<ChallengeSummary> optionalCurrentChallenge = this.challengeTimeline.getCurrentChallenge();
+        if (optionalCurrentChallenge.isEmpty()) {
+            return ResponseEntity.status(500).body("{}");
+        }
+        ChallengeSummary currentChallenge = optionalCurrentChallenge.get();
+
+        Timer.Sample sample = this.metrics.startUpload(TaskmasterMetrics.UPLOAD_STREAM);
+        String outcome = TaskmasterMetrics.OUTCOME_ERROR;
+        long bytes = 0;
+        try {
+            Optional<StoredFile> optionalStoredFile = this.streamingUploadService.store(teamToken.teamName(), currentChallenge.getId(), request.getInputStream());
+            if (optionalStoredFile.isEmpty()) {
+                outcome = TaskmasterMetrics.OUTCOME_REJECTED;
+                return ResponseEntity.badRequest().body("{\"error\": \"Only image and video files are allowed.\"}");
+            }
+            StoredFile storedFile = optionalStoredFile.get();
+            bytes = storedFile.size();
+
+            Submission submission = new Submission();
+            submission.setTeam(this.teamRepository.getReferenceById(teamToken.teamId()));
+            submission.setChallenge(this.challengeRepository.getReferenceById(currentChallenge.getId()));
+            submission.setUploadedAt(Instant.now());
+            submission.setFileName(storedFile.fileName());
+            submission.setSize(storedFile.size());
+            submission.setSha256(storedFile.sha256());
+            if (this.storageUsageService.save(submission).isEmpty()) {
+                this.submissionStorage.delete(storedFile.fileName());
+                outcome = TaskmasterMetrics.OUTCOME_REJECTED;
+                return ResponseEntity.status(413).body("{\"error\": \"Storage quota exceeded.\"}");
+            }
+            previewService.schedule(storedFile.fileName());
+            submissionFeed.submissionCreated(submission.getId(), teamToken.teamId(), currentChallenge.getId(), submission.getUploadedAt());
+            exportArchiveService.scheduleUpdate(currentChallenge.getId());
+
+            outcome = TaskmasterMetrics.OUTCOME_SUCCESS;
+            return ResponseEntity.ok(new StreamUploadResponse(storedFile.contentType(), storedFile.size(), storedFile.sha256()));
+        } catch (TooLargeException e) {
+            outcome = TaskmasterMetrics.OUTCOME_REJECTED;
+            return ResponseEntity.status(413).body("{\"error\": \"" + e.getMessage() + ".\"}");
+        } catch (IOException e) {
+            log.warn("Could not store a streamed upload of team {}", teamToken.teamId(), e);
+            return ResponseEntity.status(500).body("{}");
+        } finally {
+            this.metrics.finishUpload(sample, TaskmasterMetrics.UPLOAD_STREAM, currentChallenge.getId(), bytes, outcome);
+        }
+    }
+
+    @Operation(summary = "Start a resumable upload for the current challenge", tags = {"Team challenges"})
+    @ApiResponse(responseCode = "200", description = "Upload session created")
+    @ApiResponse(responseCode = "400", description = "Invalid file type or size")
+    @ApiResponse(responseCode = "403", description = "Authentication failed")
+    @ApiResponse(responseCode = "413", description = "Storage quota of the team or challenge exceeded")
+    @PostMapping("/submission/upload")
+    public ResponseEntity<?> initiateUpload(
+            @Parameter(description = "Authentication token") @RequestParam("token") String token,
+            @Parameter(description = "Content type of the file") @RequestParam("contentType") String contentType,
+            @Parameter(description = "Total file size in bytes") @RequestParam("size") long size) {
+        Optional<TeamToken> optionalToken = this.teamTokenService.verify(token);
+        if (optionalToken.isEmpty()) {
             return ResponseEntity.status(403).body("{}");
         }
 
-        Optional<Challenge> optionalCurrentChallenge = this.challengeRepository.findFirstByStartDateBeforeOrderByStartDateDesc(Instant.now());
+        Optional<ChallengeSummary> optionalCurrentChallenge = this.challengeTimeline.getCurrentChallenge();
         if (optionalCurrentChallenge.isEmpty()) {
             return ResponseEntity.status(500).body("{}");
         }
-        Challenge currentChallenge = optionalCurrentChallenge.get();
 
-        String contentType = file.getContentType();
-        if (contentType == null || !isAllowedType(contentType)) {
+        if (!isAllowedType(contentType)) {
             return ResponseEntity.badRequest().body("{\"error\": \"Only image and video files are allowed.\"}");
         }
+        if (size <= 0 || size > this.chunkedUploadService.getMaxSize()) {
+            return ResponseEntity.badRequest().body("{\"error\": \"Invalid file size.\"}");
+        }
+        if (!this.storageUsageService.fitsQuota(optionalToken.get().teamId(), optionalCurrentChallenge.get().getId(), size)) {
+            return ResponseEntity.status(413).body("{\"error\": \"Storage quota exceeded.\"}");
+        }
 
         try {
-            Path dirPath = Paths.get(uploadDir).toAbsolutePath().normalize();
-            if (!Files.exists(dirPath)) {
-                Files.createDirectories(dirPath);
-            }
+            UploadSession session = this.chunkedUploadService.initiate(optionalToken.get(), optionalCurrentChallenge.get(), contentType, size);
+            return ResponseEntity.ok(new UploadStatusResponse(session.getId(), session.getReceivedBytes(), session.getSize()));
+        } catch (IOException e) {
+            log.warn("Could not start a resumable upload of team {}", optionalToken.get().teamId(), e);
+            return ResponseEntity.status(500).body("{}");
+        }
+    }
 
-            String originalFileName = file.getOriginalFilename();
-            String extension = originalFileName != null && originalFileName.contains(".") ? originalFileName.substring(originalFileName.indexOf(".")) : "";
-            String fileName = teamName + "_" + currentChallenge.getId() + "_" + UUID.randomUUID() + extension;
-            Path filePath = dirPath.resolve(fileName);
+    @Operation(summary = "Upload a chunk of a resumable upload", tags = {"Team challenges"})
+    @ApiResponse(responseCode = "200", description = "Chunk stored, returns the new offset")
+    @ApiResponse(responseCode = "403", description = "Authentication failed")
+    @ApiResponse(responseCode = "404", description = "Unknown upload")
+    @ApiResponse(responseCode = "409", description = "Offset does not match or upload is busy, returns the current offset")
+    @ApiResponse(responseCode = "413", description = "Chunk exceeds the announced file size")
+    @ApiResponse(responseCode = "429", description = "Upload limit reached, retry after the number of seconds in Retry-After")
+    @PutMapping(value = "/submission/upload/{uploadId}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> uploadChunk(
+            @PathVariable String uploadId,
+            @Parameter(description = "Authentication token") @RequestParam("token") String token,
+            @Parameter(description = "Byte offset of this chunk") @RequestParam("offset") long offset,
+            HttpServletRequest request) {
+        Optional<UploadSession> optionalSession = findOwnUploadSession(uploadId, token);
+        if (optionalSession.isEmpty()) {
+            return ResponseEntity.status(403).body("{}");
+        }
+        UploadSession session = optionalSession.get();
 
-            file.transferTo(filePath.toFile());
+        Timer.Sample sample = this.metrics.startUpload(TaskmasterMetrics.UPLOAD_CHUNKED);
+        String outcome = TaskmasterMetrics.OUTCOME_ERROR;
+        long bytes = 0;
+        try {
+            ChunkResult result = this.chunkedUploadService.writeChunk(uploadId, offset, request.getInputStream());
+            UploadStatusResponse status = new UploadStatusResponse(uploadId, result.offset(), session.getSize());
+            if (result.status() == ChunkStatus.OK) {
+                outcome = TaskmasterMetrics.OUTCOME_SUCCESS;
+                bytes = result.offset() - offset;
+            } else {
+                outcome = TaskmasterMetrics.OUTCOME_REJECTED;
+            }
+            return switch (result.status()) {
+                case OK -> ResponseEntity.ok(status);
+                case NOT_FOUND -> ResponseEntity.status(404).body("{}");
+                case BUSY, OFFSET_MISMATCH -> ResponseEntity.status(409).body(status);
+                case TOO_LARGE -> ResponseEntity.status(413).body(status);
+            };
+        } catch (IOException e) {
+            // Usually the client went away, the bytes that did arrive are recorded and can be resumed
+            outcome = TaskmasterMetrics.OUTCOME_ABORTED;
+            return ResponseEntity.status(500).body("{}");
+        } finally {
+            this.metrics.finishUpload(sample, TaskmasterMetrics.UPLOAD_CHUNKED, session.getChallengeId(), bytes, outcome);
+        }
+    }
 
-            Submission submission = new Submission();
-            submission.setTeam(team);
-            submission.setChallenge(currentChallenge);
-            submission.setUploadedAt(Instant.now());
-            submission.setFileName(fileName);
-            submissionRepository.save(submission);
+    @Operation(summary = "Get the progress of a resumable upload", tags = {"Team challenges"})
+    @ApiResponse(responseCode = "200", description = "Current offset")
+    @ApiResponse(responseCode = "403", description = "Authentication failed")
+    @GetMapping("/submission/upload/{uploadId}")
+    public ResponseEntity<?> getUploadStatus(
+            @PathVariable String uploadId,
+            @Parameter(description = "Authentication token") @RequestParam("token") String token) {
+        Optional<UploadSession> optionalSession = findOwnUploadSession(uploadId, token);
+        if (optionalSession.isEmpty()) {
+            return ResponseEntity.status(403).body("{}");
+        }
+        UploadSession session = optionalSession.get();
+        return ResponseEntity.ok(new UploadStatusResponse(uploadId, session.getReceivedBytes(), session.getSize()));
+    }
 
-            return ResponseEntity.ok("{}");
+    @Operation(summary = "Complete a resumable upload and create the submission", tags = {"Team challenges"})
+    @ApiResponse(responseCode = "200", description = "Submission created")
+    @ApiResponse(responseCode = "403", description = "Authentication failed")
+    @ApiResponse(responseCode = "409", description = "Upload is not complete yet")
+    @ApiResponse(responseCode = "413", description = "Storage quota of the team or challenge exceeded, the upload can be completed after freeing space")
+    @PostMapping("/submission/upload/{uploadId}/complete")
+    public ResponseEntity<?> completeUpload(
+            @PathVariable String uploadId,
+            @Parameter(description = "Authentication token") @RequestParam("token") String token) {
+        Optional<UploadSession> optionalSession = findOwnUploadSession(uploadId, token);
+        if (optionalSession.isEmpty()) {
+            return ResponseEntity.status(403).body("{}");
+        }
+        CompleteResult result;
+        try {
+            result = this.chunkedUploadService.complete(uploadId);
         } catch (IOException e) {
-            e.printStackTrace();
+            log.warn("Could not complete upload {}", uploadId, e);
             return ResponseEntity.status(500).body("{}");
         }
+        if (result.status() == CompleteStatus.INCOMPLETE) {
+            return ResponseEntity.status(409).body("{}");
+        }
+        if (result.status() == CompleteStatus.QUOTA_EXCEEDED) {
+            return ResponseEntity.status(413).body("{\"error\": \"Storage quota exceeded.\"}");
+        }
+        Submission submission = result.submission();
+        this.previewService.schedule(submission.getFileName());
+        this.submissionFeed.submissionCreated(submission.getId(), submission.getTeam().getId(), submission.getChallenge().getId(), submission.getUploadedAt());
+        this.exportArchiveService.scheduleUpdate(submission.getChallenge().getId());
+        return ResponseEntity.ok("{}");
     }
 
-    @Operation(summary = "List all challenges that have started", tags = {"Team challenges"})
+    private Optional<UploadSession> findOwnUploadSession(String uploadId, String token) {
+        Optional<TeamToken> optionalToken = this.teamTokenService.verify(token);
+        if (optionalToken.isEmpty()) {
+            return Optional.empty();
+        }
+        long teamId = optionalToken.get().teamId();
+        return this.chunkedUploadService.find(uploadId).filter(session -> session.getTeamId() == teamId);
+    }
+
+    @Operation(
+            summary = "List all challenges that have started",
+            description = "Send the ETag back in If-None-Match to get 304 while the schedule is unchanged.",
+            tags = {"Team challenges"}
+    )
     @ApiResponse(responseCode = "200", description = "List of challenges")
+    @ApiResponse(responseCode = "304", description = "The schedule has not changed")
     @GetMapping("/challenge")
-    public ResponseEntity<List<Challenge>> getChallenges() {
-        List<Challenge> challenges = challengeRepository.findAllByStartDateBeforeOrderByStartDateDesc(Instant.now());
-        return ResponseEntity.ok(challenges);
+    public ResponseEntity<List<ChallengeSummary>> getChallenges() {
+        Schedule schedule = challengeTimeline.getSchedule();
+        return cachedUntilScheduleChanges(schedule).body(schedule.started());
     }
 
-    @Operation(summary = "Get the current active challenge", tags = {"Team challenges"})
+    @Operation(
+            summary = "Get the current active challenge",
+            description = "Send the ETag back in If-None-Match to get 304 while the schedule is unchanged.",
+            tags = {"Team challenges"}
+    )
     @ApiResponse(responseCode = "200", description = "Current challenge")
+    @ApiResponse(responseCode = "304", description = "The schedule has not changed")
     @ApiResponse(responseCode = "500", description = "No challenge currently active")
     @GetMapping("/challenge/current")
     public ResponseEntity<?> getChallenge() {
-        Optional<Challenge> optionalCurrentChallenge = this.challengeRepository.findFirstByStartDateBeforeOrderByStartDateDesc(Instant.now());
-        if (optionalCurrentChallenge.isEmpty()) {
+        Schedule schedule = this.challengeTimeline.getSchedule();
+        if (schedule.started().isEmpty()) {
             return ResponseEntity.status(500).body("{}");
         }
-        Challenge currentChallenge = optionalCurrentChallenge.get();
-        return ResponseEntity.ok(currentChallenge);
+        ChallengeSummary currentChallenge = schedule.started().get(0);
+        return cachedUntilScheduleChanges(schedule).body(currentChallenge);
     }
 
     @Operation(summary = "Create a new challenge", tags = {"Administration"})
@@ -201,15 +561,88 @@ public class Controller {
         challenge.setDescription(description);
         challenge.setStartDate(startDate);
         this.challengeRepository.save(challenge);
+        this.challengeTimeline.invalidate();
+        this.submissionFeed.challengeChanged(challenge.getId(), "created");
         return ResponseEntity.ok("{}");
     }
 
+    @Operation(
+            summary = "Import challenges",
+            description = "Creates many challenges in one transaction. Send a JSON array, or CSV (text/csv) with the header line 'title,description,startDate'. Start dates look like 2025-06-03T15:00:00Z. If any row is invalid, nothing is imported and the errors are returned per row.",
+            tags = {"Administration"}
+    )
+    @ApiResponse(responseCode = "200", description = "Challenges imported")
+    @ApiResponse(responseCode = "400", description = "Invalid rows, nothing was imported")
+    @ApiResponse(responseCode = "403", description = "Invalid admin code")
+    @PostMapping(value = "/challenge/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> importChallenges(
+            @Parameter(schema = @Schema(type = "string", format = "password")) @RequestParam String adminCode,
+            @RequestBody List<ChallengeImportRow> rows) {
+        if (!this.adminCode.equals(adminCode)) {
+            return ResponseEntity.status(403).body("{}");
+        }
+        return importResponse(this.importService.importChallenges(rows));
+    }
+
+    @Operation(hidden = true)
+    @PostMapping(value = "/challenge/import", consumes = "text/csv")
+    public ResponseEntity<?> importChallengesCsv(@RequestParam String adminCode, @RequestBody String csv) {
+        return importChallenges(adminCode, this.importService.parseChallengesCsv(csv));
+    }
+
+    @Operation(
+            summary = "Set the upload limits of a challenge",
+            description = "Limits left empty use the server defaults, zero or less disables a limit. Uploads over a limit are answered with 429 and Retry-After before their body is read.",
+            tags = {"Administration"}
+    )
+    @ApiResponse(responseCode = "200", description = "Limits updated")
+    @ApiResponse(responseCode = "400", description = "Unknown challenge")
+    @ApiResponse(responseCode = "403", description = "Invalid admin code")
+    @PutMapping("/challenge/{challengeId}/upload-limits")
+    public ResponseEntity<?> setUploadLimits(
+            @PathVariable Long challengeId,
+            @Parameter(schema = @Schema(type = "string", format = "password")) @RequestParam String adminCode,
+            @Parameter(description = "Uploads a team may run at once") @RequestParam(required = false) Integer maxConcurrentUploadsPerTeam,
+            @Parameter(description = "Average upload rate per team in bytes per second") @RequestParam(required = false) Long uploadBytesPerSecondPerTeam) {
+        if (!this.adminCode.equals(adminCode)) {
+            return ResponseEntity.status(403).body("{}");
+        }
+        Optional<Challenge> optionalChallenge = this.challengeRepository.findById(challengeId);
+        if (optionalChallenge.isEmpty()) {
+            return ResponseEntity.badRequest().body("{}");
+        }
+        Challenge challenge = optionalChallenge.get();
+        challenge.setMaxConcurrentUploadsPerTeam(maxConcurrentUploadsPerTeam);
+        challenge.setUploadBytesPerSecondPerTeam(uploadBytesPerSecondPerTeam);
+        this.challengeRepository.save(challenge);
+        this.uploadAdmission.invalidate(challengeId);
+        return ResponseEntity.ok(new UploadLimits(maxConcurrentUploadsPerTeam, uploadBytesPerSecondPerTeam));
+    }
+
+    @Operation(
+            summary = "Live feed of submission and challenge changes",
+            description = "Server-Sent Events named '" + SubmissionFeed.SUBMISSION_CREATED + "', '" + SubmissionFeed.SUBMISSIONS_DELETED + "' and '" + SubmissionFeed.CHALLENGE_CHANGED + "'. "
+                    + "Reconnecting with Last-Event-ID replays what was missed; if that is no longer possible a '" + SubmissionFeed.RESYNC + "' event asks the client to reload.",
+            tags = {"Administration"}
+    )
+    @ApiResponse(responseCode = "200", description = "Event stream")
+    @ApiResponse(responseCode = "403", description = "Invalid admin code")
+    @GetMapping(value = "/submissions/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> getSubmissionEvents(
+            @Parameter(schema = @Schema(type = "string", format = "password")) @RequestParam String adminCode,
+            @Parameter(description = "Id of the last event received, sent by browsers when they reconnect") @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        if (!this.adminCode.equals(adminCode)) {
+            return ResponseEntity.status(403).build();
+        }
+        return ResponseEntity.ok(this.submissionFeed.subscribe(lastEventId));
+    }
+
     @Operation(summary = "Download all submissions for a challenge", tags = {"Administration"})
-    @ApiResponse(responseCode = "200", description = "ZIP file with submissions")
+    @ApiResponse(responseCode = "200", description = "ZIP file with submissions, served from the pre-built export archive of the challenge if it is up to date")
     @ApiResponse(responseCode = "204", description = "No submissions")
     @ApiResponse(responseCode = "403", description = "Invalid admin code")
     @GetMapping("/challenge/{challengeId}/submissions")
-    public ResponseEntity<Resource> downloadSubmissionsZip(
+    public ResponseEntity<StreamingResponseBody> downloadSubmissionsZip(
             @Parameter(description = "Challenge ID") @PathVariable Long challengeId,
             @Parameter(description = "Admin code", schema = @Schema(type = "string", format = "password")) @RequestParam String adminCode) {
         if (!this.adminCode.equals(adminCode)) {
@@ -226,37 +659,170 @@ public class Controller {
             return ResponseEntity.noContent().build();
         }
 
+        if (exportArchiveService.isEnabled()) {
+            Optional<ResponseEntity<StreamingResponseBody>> archived = downloadExportArchive(challengeId);
+            if (archived.isPresent()) {
+                return archived.get();
+            }
+        }
+
+        // The body is written after this method returns, so resolve everything the stream needs up front.
+        List<String> fileNames = submissions.stream().map(Submission::getFileName).toList();
+        StreamingResponseBody body = outputStream -> {
+            long start = System.nanoTime();
+            long bytes = 0;
+            String outcome = TaskmasterMetrics.OUTCOME_ABORTED;
+            try {
+                bytes = submissionArchiveWriter.write(fileNames, outputStream);
+                outcome = TaskmasterMetrics.OUTCOME_SUCCESS;
+            } finally {
+                metrics.recordExport(challengeId, bytes, System.nanoTime() - start, outcome);
+            }
+        };
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=submissions_challenge_" + challengeId + ".zip")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(body);
+    }
+
+    @Operation(
+            summary = "Get a preview of a submission",
+            description = "Returns a downscaled JPEG for images, or a small JSON document with metadata for videos.",
+            tags = {"Administration"}
+    )
+    @ApiResponse(responseCode = "200", description = "Preview")
+    @ApiResponse(responseCode = "403", description = "Invalid admin code")
+    @ApiResponse(responseCode = "404", description = "Unknown submission or no preview available yet")
+    @GetMapping("/submission/{submissionId}/preview")
+    public ResponseEntity<?> getSubmissionPreview(
+            @PathVariable Long submissionId,
+            @Parameter(schema = @Schema(type = "string", format = "password")) @RequestParam String adminCode) {
+        if (!this.adminCode.equals(adminCode)) {
+            return ResponseEntity.status(403).body("{}");
+        }
+
+        Optional<Submission> optionalSubmission = submissionRepository.findById(submissionId);
+        if (optionalSubmission.isEmpty()) {
+            return ResponseEntity.status(404).body("{}");
+        }
+        Optional<String> optionalPreview = previewService.findPreview(optionalSubmission.get().getFileName());
+        if (optionalPreview.isEmpty()) {
+            return ResponseEntity.status(404).body("{}");
+        }
+
+        String previewKey = optionalPreview.get();
+        try (InputStream in = submissionStorage.openInputStream(previewKey)) {
+            MediaType mediaType = previewKey.endsWith(PreviewService.PREVIEW_SUFFIX) ? MediaType.IMAGE_JPEG : MediaType.APPLICATION_JSON;
+            return ResponseEntity.ok()
+                    .contentType(mediaType)
+                    .cacheControl(CacheControl.maxAge(Duration.ofDays(1)).cachePrivate())
+                    .body(in.readAllBytes());
+        } catch (IOException e) {
+            log.warn("Could not read the preview of submission {}", submissionId, e);
+            return ResponseEntity.status(500).body("{}");
+        }
+    }
+
+    @Operation(
+            summary = "Download a single submission",
+            description = "Supports a single byte range via the Range header so videos can be seeked, and conditional requests via ETag and Last-Modified. Files whose content is a supported image or video are sent inline, anything else as an attachment.",
+            tags = {"Administration"}
+    )
+    @ApiResponse(responseCode = "200", description = "The whole file")
+    @ApiResponse(responseCode = "206", description = "The requested range")
+    @ApiResponse(responseCode = "304", description = "Not modified")
+    @ApiResponse(responseCode = "403", description = "Invalid admin code")
+    @ApiResponse(responseCode = "404", description = "Unknown submission or the file is missing")
+    @ApiResponse(responseCode = "416", description = "Range not satisfiable")
+    @GetMapping("/submission/{submissionId}/file")
+    public ResponseEntity<StreamingResponseBody> downloadSubmission(
+            @PathVariable Long submissionId,
+            @Parameter(schema = @Schema(type = "string", format = "password")) @RequestParam String adminCode,
+            WebRequest webRequest,
+            HttpServletRequest request) {
+        if (!this.adminCode.equals(adminCode)) {
+            return ResponseEntity.status(403).build();
+        }
+
+        Optional<Submission> optionalSubmission = submissionRepository.findById(submissionId);
+        if (optionalSubmission.isEmpty() || !submissionStorage.exists(optionalSubmission.get().getFileName())) {
+            return ResponseEntity.status(404).build();
+        }
+        Submission submission = optionalSubmission.get();
+        String key = submission.getFileName();
+
+        // Submission files never change after upload, so the upload time identifies the content
+        Instant uploadedAt = submission.getUploadedAt();
+        String etag = "\"" + submissionId + "-" + uploadedAt.toEpochMilli() + "\"";
+        if (webRequest.checkNotModified(etag, uploadedAt.toEpochMilli())) {
+            return null;
+        }
+
         try {
-            Path zipPath = Files.createTempFile("submissions_" + challengeId + "_", ".zip");
-            try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zipPath.toFile()))) {
-                for (Submission submission : submissions) {
-                    Path filePath = Paths.get(uploadDir).resolve(submission.getFileName()).normalize();
-                    if (Files.exists(filePath)) {
-                        zos.putNextEntry(new ZipEntry(submission.getFileName()));
-                        Files.copy(filePath, zos);
-                        zos.closeEntry();
+            long size = submissionStorage.size(key);
+            long start = 0;
+            long length = size;
+            HttpStatus status = HttpStatus.OK;
+            String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+            if (rangeHeader != null && isRangeStillValid(request.getHeader(HttpHeaders.IF_RANGE), etag, uploadedAt)) {
+                List<HttpRange> ranges;
+                try {
+                    ranges = HttpRange.parseRanges(rangeHeader);
+                } catch (IllegalArgumentException e) {
+                    ranges = List.of();
+                }
+                // Players only ask for one range; multiple ranges are answered with the whole file
+                if (ranges.size() == 1) {
+                    try {
+                        start = ranges.get(0).getRangeStart(size);
+                        length = ranges.get(0).getRangeEnd(size) - start + 1;
+                        status = HttpStatus.PARTIAL_CONTENT;
+                    } catch (IllegalArgumentException e) {
+                        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                                .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+                                .build();
                     }
                 }
             }
 
-            Resource resource = new FileSystemResource(zipPath);
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=submissions_challenge_" + challengeId + ".zip")
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .contentLength(resource.contentLength())
-                    .body(resource);
+            // The name and extension come from the team, so only the content decides how the browser treats the
+            // file: detected images and videos are shown inline, anything else (e.g. SVG or HTML) is downloaded
+            Optional<String> contentType;
+            try (InputStream in = submissionStorage.openInputStream(key)) {
+                byte[] header = in.readNBytes(ContentSniffer.HEADER_SIZE);
+                contentType = ContentSniffer.detect(header, header.length);
+            }
+            ContentDisposition.Builder disposition = contentType.isPresent() ? ContentDisposition.inline() : ContentDisposition.attachment();
 
+            ResponseEntity.BodyBuilder response = ResponseEntity.status(status)
+                    .contentType(contentType.map(MediaType::parseMediaType).orElse(MediaType.APPLICATION_OCTET_STREAM))
+                    .contentLength(length)
+                    .eTag(etag)
+                    .lastModified(uploadedAt)
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                    .header(HttpHeaders.CONTENT_DISPOSITION, disposition.filename(SubmissionStorage.fileName(key)).build().toString())
+                    .header("X-Content-Type-Options", "nosniff")
+                    .header("Content-Security-Policy", "sandbox");
+            if (status == HttpStatus.PARTIAL_CONTENT) {
+                response.header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (start + length - 1) + "/" + size);
+            }
+            if (HttpMethod.HEAD.matches(request.getMethod())) {
+                return response.build();
+            }
+            Optional<StreamingResponseBody> body = submissionFileSender.prepare(key, start, length, request);
+            return body.isPresent() ? response.body(body.get()) : response.build();
         } catch (IOException e) {
-            e.printStackTrace();
+            log.warn("Could not send the file of submission {}", submissionId, e);
             return ResponseEntity.status(500).build();
         }
     }
 
     @Operation(summary = "Delete all submissions for a challenge from a team", tags = {"Administration"})
-    @ApiResponse(responseCode = "200", description = "Submissions deleted")
+    @ApiResponse(responseCode = "200", description = "Submissions deleted, files are removed by the returned job")
     @ApiResponse(responseCode = "403", description = "Invalid admin code")
     @DeleteMapping("/challenge/{challengeId}/submissions/{teamId}")
-    public ResponseEntity<String> deleteTeamSubmissionsForChallenge(
+    public ResponseEntity<?> deleteTeamSubmissionsForChallenge(
             @PathVariable Long challengeId,
             @PathVariable Long teamId,
             @Parameter(schema = @Schema(type = "string", format = "password")) @RequestParam String adminCode) {
@@ -265,35 +831,19 @@ public class Controller {
             return ResponseEntity.status(403).body("{}");
         }
 
-        Optional<Team> optionalTeam = teamRepository.findById(teamId);
-        Optional<Challenge> optionalChallenge = challengeRepository.findById(challengeId);
-
-        if (optionalTeam.isEmpty() || optionalChallenge.isEmpty()) {
+        if (!teamRepository.existsById(teamId) || !challengeRepository.existsById(challengeId)) {
             return ResponseEntity.badRequest().body("{}");
         }
 
-        Team team = optionalTeam.get();
-        Challenge challenge = optionalChallenge.get();
-
-        List<Submission> submissions = submissionRepository.findAllByTeamAndChallenge(team, challenge);
-        for (Submission submission : submissions) {
-            Path filePath = Paths.get(uploadDir).resolve(submission.getFileName()).normalize();
-            try {
-                Files.deleteIfExists(filePath);
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-            submissionRepository.delete(submission);
-        }
-
-        return ResponseEntity.ok("{}");
+        DeletionJob job = deletionService.deleteTeamSubmissionsForChallenge(teamId, challengeId);
+        return ResponseEntity.ok(job);
     }
 
     @Operation(summary = "Delete a challenge and its submissions", tags = {"Administration"})
-    @ApiResponse(responseCode = "200", description = "Challenge deleted")
+    @ApiResponse(responseCode = "200", description = "Challenge deleted, files are removed by the returned job")
     @ApiResponse(responseCode = "403", description = "Invalid admin code")
     @DeleteMapping("/challenge/{challengeId}")
-    public ResponseEntity<String> deleteChallenge(
+    public ResponseEntity<?> deleteChallenge(
             @PathVariable Long challengeId,
             @Parameter(schema = @Schema(type = "string", format = "password")) @RequestParam String adminCode) {
 
@@ -301,38 +851,122 @@ public class Controller {
             return ResponseEntity.status(403).body("{}");
         }
 
-        Optional<Challenge> optionalChallenge = challengeRepository.findById(challengeId);
-        if (optionalChallenge.isEmpty()) {
+        if (!challengeRepository.existsById(challengeId)) {
             return ResponseEntity.badRequest().body("{}");
         }
 
-        Challenge challenge = optionalChallenge.get();
-        List<Submission> submissions = challenge.getSubmissions();
-        for (Submission submission : submissions) {
-            Path filePath = Paths.get(uploadDir).resolve(submission.getFileName()).normalize();
-            try {
-                Files.deleteIfExists(filePath);
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-            submissionRepository.delete(submission);
-        }
-
-        challengeRepository.delete(challenge);
-        return ResponseEntity.ok("{}");
+        DeletionJob job = deletionService.deleteChallenge(challengeId);
+        challengeTimeline.invalidate();
+        return ResponseEntity.ok(job);
     }
 
-    @Operation(summary = "Get all challenges (admin-only)", tags = {"Administration"})
+    @Operation(
+            summary = "Get all challenges (admin-only)",
+            description = "Returns challenges ordered by ID, one page at a time. If more challenges may follow, the " + NEXT_AFTER_ID_HEADER + " header holds the 'afterId' for the next page.",
+            tags = {"Administration"}
+    )
     @ApiResponse(responseCode = "200", description = "List of all challenges")
     @ApiResponse(responseCode = "403", description = "Invalid admin code")
     @GetMapping("/challenge/all")
     public ResponseEntity<?> getAllChallengesAdmin(
-            @Parameter(schema = @Schema(type = "string", format = "password")) @RequestParam String adminCode) {
+            @Parameter(schema = @Schema(type = "string", format = "password")) @RequestParam String adminCode,
+            @Parameter(description = "Only return challenges with a higher ID") @RequestParam(required = false) Long afterId,
+            @Parameter(description = "Maximum number of challenges to return") @RequestParam(required = false) Integer limit) {
         if (!this.adminCode.equals(adminCode)) {
             return ResponseEntity.status(403).body("{}");
         }
-        List<Challenge> challenges = challengeRepository.findAll();
-        return ResponseEntity.ok(challenges);
+        int pageSize = pageSize(limit);
+        List<ChallengeSummary> challenges = challengeRepository.findSummariesAfter(afterId != null ? afterId : 0, Limit.of(pageSize));
+        return page(challenges, pageSize, ChallengeSummary::getId);
+    }
+
+    private static int pageSize(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    private static <T> ResponseEntity<List<T>> page(List<T> items, int pageSize, Function<T, Long> idOf) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (items.size() == pageSize) {
+            response.header(NEXT_AFTER_ID_HEADER, String.valueOf(idOf.apply(items.get(items.size() - 1))));
+        }
+        return response.body(items);
+    }
+
+    /**
+     * @return true if there is no If-Range header or it still matches the file, so the Range header applies
+     */
+    private boolean isRangeStillValid(String ifRange, String etag, Instant lastModified) {
+        if (ifRange == null || ifRange.equals(etag)) {
+            return true;
+        }
+        try {
+            return ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond() == lastModified.getEpochSecond();
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Sends the pre-built archive of the challenge.
+     *
+     * @return the response, or empty if the archive is not up to date and the ZIP has to be streamed instead
+     */
+    private Optional<ResponseEntity<StreamingResponseBody>> downloadExportArchive(Long challengeId) {
+        ExportArchive.Snapshot snapshot;
+        try {
+            Optional<ExportArchive.Snapshot> current = exportArchiveService.openIfCurrent(challengeId);
+            if (current.isEmpty()) {
+                return Optional.empty();
+            }
+            snapshot = current.get();
+        } catch (IOException e) {
+            log.warn("Could not open the export archive of challenge {}", challengeId, e);
+            return Optional.empty();
+        }
+        StreamingResponseBody body = outputStream -> {
+            long start = System.nanoTime();
+            long bytes = 0;
+            String outcome = TaskmasterMetrics.OUTCOME_ABORTED;
+            try (snapshot) {
+                snapshot.writeTo(outputStream);
+                bytes = snapshot.length();
+                outcome = TaskmasterMetrics.OUTCOME_SUCCESS;
+            } finally {
+                metrics.recordExport(challengeId, bytes, System.nanoTime() - start, outcome);
+            }
+        };
+
+        return Optional.of(ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=submissions_challenge_" + challengeId + ".zip")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(snapshot.length())
+                .body(body));
+    }
+
+    /**
+     * Tags a response with the schedule version. Spring answers a matching If-None-Match with 304 before the body is
+     * written, and the schedule comes from memory, so a poll that finds nothing new costs no query. Clients may reuse
+     * the response until the next challenge starts, but for at most {@code challenge.cache.max-age} so schedule edits
+     * still reach them.
+     */
+    private ResponseEntity.BodyBuilder cachedUntilScheduleChanges(Schedule schedule) {
+        Duration maxAge = this.challengeCacheMaxAge;
+        if (schedule.nextStart() != null) {
+            Duration untilNextStart = Duration.between(Instant.now(), schedule.nextStart());
+            if (untilNextStart.compareTo(maxAge) < 0) {
+                maxAge = untilNextStart.isNegative() ? Duration.ZERO : untilNextStart;
+            }
+        }
+        return ResponseEntity.ok()
+                .eTag("\"" + schedule.version() + "\"")
+                .cacheControl(CacheControl.maxAge(maxAge).cachePublic());
+    }
+
+    private static ResponseEntity<ImportResult> importResponse(ImportResult result) {
+        return result.getErrors().isEmpty() ? ResponseEntity.ok(result) : ResponseEntity.badRequest().body(result);
     }
 
     private boolean isAllowedType(String contentType) {
@@ -340,7 +974,7 @@ public class Controller {
     }
 
     @Operation(summary = "Delete a team and its submissions", tags = {"Administration"})
-    @ApiResponse(responseCode = "200", description = "Team deleted")
+    @ApiResponse(responseCode = "200", description = "Team deleted, files are removed by the returned job")
     @ApiResponse(responseCode = "403", description = "Invalid admin code")
     @DeleteMapping("/team/{teamId}")
     public ResponseEntity<?> deleteTeam(@PathVariable Long teamId,
@@ -349,24 +983,54 @@ public class Controller {
             return ResponseEntity.status(403).body("{}");
         }
 
-        Optional<Team> optionalTeam = teamRepository.findById(teamId);
-        if (optionalTeam.isEmpty()) {
+        if (!teamRepository.existsById(teamId)) {
             return ResponseEntity.badRequest().body("{}");
         }
 
-        Team team = optionalTeam.get();
-        List<Submission> submissions = team.getSubmission();
-        for (Submission submission : submissions) {
-            Path filePath = Paths.get(uploadDir).resolve(submission.getFileName()).normalize();
-            try {
-                Files.deleteIfExists(filePath);
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-            submissionRepository.delete(submission);
+        DeletionJob job = deletionService.deleteTeam(teamId);
+        teamTokenService.forget(teamId);
+        return ResponseEntity.ok(job);
+    }
+
+    @Operation(summary = "Get the progress of a file deletion job", tags = {"Administration"})
+    @ApiResponse(responseCode = "200", description = "Job status")
+    @ApiResponse(responseCode = "403", description = "Invalid admin code")
+    @ApiResponse(responseCode = "404", description = "Unknown or expired job")
+    @GetMapping("/job/{jobId}")
+    public ResponseEntity<?> getDeletionJob(
+            @PathVariable String jobId,
+            @Parameter(schema = @Schema(type = "string", format = "password")) @RequestParam String adminCode) {
+        if (!this.adminCode.equals(adminCode)) {
+            return ResponseEntity.status(403).body("{}");
+        }
+
+        Optional<DeletionJob> optionalJob = deletionService.getJob(jobId);
+        if (optionalJob.isEmpty()) {
+            return ResponseEntity.status(404).body("{}");
+        }
+        return ResponseEntity.ok(optionalJob.get());
+    }
+
+    @Operation(summary = "Revoke all tokens of a team", tags = {"Administration"})
+    @ApiResponse(responseCode = "200", description = "Tokens revoked")
+    @ApiResponse(responseCode = "400", description = "Invalid request")
+    @ApiResponse(responseCode = "403", description = "Invalid admin code")
+    @PostMapping("/team/{teamId}/tokens/revoke")
+    public ResponseEntity<?> revokeTeamTokens(
+            @PathVariable Long teamId,
+            @Parameter(schema = @Schema(type = "string", format = "password"))
+            @RequestParam String adminCode
+    ) {
+        if (!this.adminCode.equals(adminCode)) {
+            return ResponseEntity.status(403).body("{}");
+        }
+
+        Optional<Team> optionalTeam = teamRepository.findById(teamId);
+        if (optionalTeam.isEmpty()) {
+            return ResponseEntity.badRequest().body("{}");
         }
 
-        teamRepository.delete(team);
+        teamTokenService.revoke(optionalTeam.get());
         return ResponseEntity.ok("{}");
     }
 
@@ -436,13 +1100,57 @@ public class Controller {
             count = submissionRepository.countByTeamAndChallenge(team, challenge);
             return ResponseEntity.ok(new CountResponse(teamId, challengeId, count));
         } else {
-            Optional<Challenge> optionalChallenge = challengeRepository.findFirstByStartDateBeforeOrderByStartDateDesc(Instant.now());
+            Optional<ChallengeSummary> optionalChallenge = challengeTimeline.getCurrentChallenge();
             if (optionalChallenge.isEmpty()) {
                 return ResponseEntity.badRequest().body("{}");
             }
-            Challenge challenge = optionalChallenge.get();
+            Challenge challenge = challengeRepository.getReferenceById(optionalChallenge.get().getId());
             count = submissionRepository.countByTeamAndChallenge(team, challenge);
             return ResponseEntity.ok(new CountResponse(teamId, -1, count));
         }
     }
+
+    @Operation(
+            summary = "Get submission counts for all teams",
+            description = "Returns one entry per team and challenge that has submissions, optionally limited to one challenge. Teams without submissions are left out.",
+            tags = {"Administration"}
+    )
+    @ApiResponse(responseCode = "200", description = "Counts returned")
+    @ApiResponse(responseCode = "403", description = "Invalid admin code")
+    @GetMapping("/submissions/count")
+    public ResponseEntity<?> getSubmissionCounts(
+            @Parameter(description = "Admin code", schema = @Schema(type = "string", format = "password"))
+            @RequestParam String adminCode,
+            @Parameter(description = "Optional challenge ID to filter the counts")
+            @RequestParam(required = false) Long challengeId
+    ) {
+        if (!this.adminCode.equals(adminCode)) {
+            return ResponseEntity.status(403).body("{}");
+        }
+
+        List<CountResponse> counts = challengeId != null
+                ? submissionRepository.countGroupedByTeamForChallenge(challengeId)
+                : submissionRepository.countGroupedByTeamAndChallenge();
+        return ResponseEntity.ok(counts);
+    }
+
+    @Operation(
+            summary = "Get the storage used by submissions",
+            description = "Returns the bytes and files used in total, per challenge and per team, and the quotas. Read from counters that every upload and deletion updates, so this does not get slower with more submissions.",
+            tags = {"Administration"}
+    )
+    @ApiResponse(responseCode = "200", description = "Usage returned")
+    @ApiResponse(responseCode = "403", description = "Invalid admin code")
+    @GetMapping("/submissions/usage")
+    public ResponseEntity<?> getStorageUsage(
+            @Parameter(description = "Admin code", schema = @Schema(type = "string", format = "password"))
+            @RequestParam String adminCode
+    ) {
+        if (!this.adminCode.equals(adminCode)) {
+            return ResponseEntity.status(403).body("{}");
+        }
+
+        StorageUsage usage = this.storageUsageService.getUsage();
+        return ResponseEntity.ok(usage);
+    }
 }
@@ -0,0 +1,58 @@
+package software.mindware.taskmaster;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import software.mindware.taskmaster.config.ReplicaRouting;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Lets the read-only transactions of GET requests run on the replica, see
+ * {@link software.mindware.taskmaster.config.ReadReplicaConfig}. All other requests stay on the primary.
+ * <p>
+ * After a successful admin mutation, the admin's GET requests also stay on the primary for
+ * {@code datasource.replica.read-your-writes-window}, so the admin sees the change even if the replica lags behind.
+ * The window is kept per node.
+ */
+@Component
+@ConditionalOnProperty(name = "datasource.replica.url")
+public class ReplicaRoutingFilter extends OncePerRequestFilter {
+    @Value("${admin.code}")
+    private String adminCode;
+
+    @Value("${datasource.replica.read-your-writes-window:PT5S}")
+    private Duration readYourWritesWindow;
+
+    private volatile long adminPrimaryUntil = System.nanoTime();
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        boolean read = request.getMethod().equals("GET") || request.getMethod().equals("HEAD");
+        if (!read) {
+            filterChain.doFilter(request, response);
+            // Only checked afterwards, the admin code may be a form field that must not be read before the controller
+            if (response.getStatus() < 400 && isAdmin(request)) {
+                this.adminPrimaryUntil = System.nanoTime() + this.readYourWritesWindow.toNanos();
+            }
+            return;
+        }
+        if (System.nanoTime() - this.adminPrimaryUntil < 0 && isAdmin(request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        try (ReplicaRouting.Scope scope = ReplicaRouting.allowReplica()) {
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    private boolean isAdmin(HttpServletRequest request) {
+        return this.adminCode.equals(request.getParameter("adminCode"));
+    }
+}
@@ -0,0 +1,120 @@
+package software.mindware.taskmaster;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UriComponentsBuilder;
+import software.mindware.taskmaster.dto.ChallengeSummary;
+import software.mindware.taskmaster.service.ChallengeTimeline;
+import software.mindware.taskmaster.service.StorageUsageService;
+import software.mindware.taskmaster.service.TaskmasterMetrics;
+import software.mindware.taskmaster.service.TeamTokenService;
+import software.mindware.taskmaster.service.UploadAdmission;
+import software.mindware.taskmaster.service.UploadAdmission.Admission;
+import software.mindware.taskmaster.service.UploadAdmission.Permit;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * Runs {@link UploadAdmission} in front of the upload endpoints. It runs before the DispatcherServlet parses multipart
+ * bodies, so a rejected upload is answered with {@code 429} and {@code Retry-After} without its body being spooled
+ * to disk. Uploads whose declared size exceeds a storage quota are answered with {@code 413} the same way; chunks of
+ * resumable uploads were checked when the upload started.
+ * <p>
+ * The team is taken from a {@code token} in the query string, since reading form fields would consume the body.
+ * Clients that only send the token as a form field are limited by their address instead.
+ */
+@Component
+public class UploadAdmissionFilter extends OncePerRequestFilter {
+    private final UploadAdmission uploadAdmission;
+    private final ChallengeTimeline challengeTimeline;
+    private final TeamTokenService teamTokenService;
+    private final TaskmasterMetrics metrics;
+    private final StorageUsageService storageUsageService;
+
+    @Value("${upload.max-size:1000MB}")
+    private DataSize maxSize;
+
+    public UploadAdmissionFilter(UploadAdmission uploadAdmission, ChallengeTimeline challengeTimeline,
+                                 TeamTokenService teamTokenService, TaskmasterMetrics metrics,
+                                 StorageUsageService storageUsageService) {
+        this.uploadAdmission = uploadAdmission;
+        this.challengeTimeline = challengeTimeline;
+        this.teamTokenService = teamTokenService;
+        this.metrics = metrics;
+        this.storageUsageService = storageUsageService;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return switch (request.getMethod()) {
+            case "POST" -> !path.equals("/submission") && !path.equals("/submission/stream");
+            case "PUT" -> !path.startsWith("/submission/upload/");
+            default -> true;
+        };
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        Optional<ChallengeSummary> currentChallenge = this.challengeTimeline.getCurrentChallenge();
+        if (currentChallenge.isEmpty()) {
+            // Nothing can be uploaded, the controller answers that
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long challengeId = currentChallenge.get().getId();
+        Optional<Long> teamId = teamId(request);
+        long declaredSize = request.getContentLengthLong();
+        if (request.getMethod().equals("POST") && declaredSize >= 0
+                && !this.storageUsageService.fitsQuota(teamId.orElse(null), challengeId, declaredSize)) {
+            reject(response, HttpStatus.PAYLOAD_TOO_LARGE, "Storage quota exceeded.");
+            return;
+        }
+
+        String clientKey = teamId.map(id -> "team:" + id).orElseGet(() -> "address:" + request.getRemoteAddr());
+        Admission admission = this.uploadAdmission.admit(clientKey, challengeId,
+                declaredSize >= 0 ? declaredSize : this.maxSize.toBytes());
+        if (!admission.isAdmitted()) {
+            this.metrics.recordAdmissionRejected(admission.reason());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(admission.retryAfterSeconds()));
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, "Upload limit reached (" + admission.reason() + "), retry later.");
+            return;
+        }
+        try (Permit permit = admission.permit()) {
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        // The body is not read, so the connection cannot be reused
+        response.setHeader(HttpHeaders.CONNECTION, "close");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\": \"" + message + "\"}");
+    }
+
+    /**
+     * @return the team of the token in the query string, empty if there is none or it is invalid
+     */
+    private Optional<Long> teamId(HttpServletRequest request) {
+        String query = request.getQueryString();
+        String token = query == null ? null : UriComponentsBuilder.newInstance().query(query).build().getQueryParams().getFirst("token");
+        if (token == null) {
+            return Optional.empty();
+        }
+        return this.teamTokenService.verify(URLDecoder.decode(token, StandardCharsets.UTF_8)).map(TeamTokenService.TeamToken::teamId);
+    }
+}
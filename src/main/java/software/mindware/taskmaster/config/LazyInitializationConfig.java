@@ -0,0 +1,45 @@
+package software.mindware.taskmaster.config;
+
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.List;
+
+/**
+ * Makes beans that no request needs right after startup, like springdoc's OpenAPI and Swagger UI support, lazy. They
+ * are created on first use instead of delaying readiness. The packages are listed in {@code startup.lazy-packages}.
+ */
+@Configuration
+public class LazyInitializationConfig {
+    @Bean
+    public static BeanFactoryPostProcessor lazyPackagesPostProcessor(Environment environment) {
+        List<String> packages = List.of(environment.getProperty("startup.lazy-packages", String[].class, new String[0]));
+        return beanFactory -> {
+            if (packages.isEmpty()) {
+                return;
+            }
+            for (String beanName : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition definition = beanFactory.getBeanDefinition(beanName);
+                String className = declaringClassName(definition);
+                if (className != null && packages.stream().anyMatch(prefix -> className.startsWith(prefix + "."))) {
+                    definition.setLazyInit(true);
+                }
+            }
+        };
+    }
+
+    /**
+     * @return the class that declares the bean: the configuration class for {@code @Bean} methods, otherwise the bean
+     * class
+     */
+    private static String declaringClassName(BeanDefinition definition) {
+        if (definition instanceof AnnotatedBeanDefinition annotated && annotated.getFactoryMethodMetadata() != null) {
+            return annotated.getFactoryMethodMetadata().getDeclaringClassName();
+        }
+        return definition.getBeanClassName();
+    }
+}
@@ -0,0 +1,78 @@
+package software.mindware.taskmaster.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Sends read-only transactions to a replica when {@code datasource.replica.url} is set. The replica takes the
+ * polling reads of the GET endpoints; writes, authentication and the in-memory caches keep using the primary
+ * ({@code spring.datasource.*}).
+ * <p>
+ * The replica is configured like the primary under {@code datasource.replica.*}, with its pool settings under
+ * {@code datasource.replica.hikari.*}. Username and password default to those of the primary.
+ * <p>
+ * AOT fixes at build time whether this configuration is included, so the fast-startup image must be built with
+ * {@code READ_REPLICA=true} for the replica to be used.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.replica.url")
+public class ReadReplicaConfig {
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public HikariDataSource replicaDataSource(Environment environment, DataSourceProperties primaryProperties) {
+        Binder binder = Binder.get(environment);
+        DataSourceProperties properties = binder.bind("datasource.replica", DataSourceProperties.class)
+                .orElseGet(DataSourceProperties::new);
+        if (properties.getUrl() == null) {
+            // Only possible in an AOT build made with the replica, see Dockerfile.fast-startup
+            throw new IllegalStateException("datasource.replica.url is not set, but the application was built with a read replica");
+        }
+        if (properties.getUsername() == null) {
+            properties.setUsername(primaryProperties.getUsername());
+            properties.setPassword(primaryProperties.getPassword());
+        }
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("replica");
+        binder.bind("datasource.replica.hikari", Bindable.ofInstance(dataSource));
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica) {
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, replica));
+    }
+
+    /**
+     * Hibernate holds on to its connection until the session closes by default. With open-in-view that is the whole
+     * request, so every transaction of a request would use the connection the first one got.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionsAfterTransaction() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+}
@@ -0,0 +1,55 @@
+package software.mindware.taskmaster.config;
+
+/**
+ * Decides per thread whether read-only transactions may run on the replica, see {@link ReadReplicaConfig}. By
+ * default they may not, so only code that explicitly allows it, like the GET requests, can read stale data.
+ * <p>
+ * Scopes restore the previous setting when closed and can be nested:
+ * <pre>{@code
+ * try (ReplicaRouting.Scope scope = ReplicaRouting.primaryOnly()) {
+ *     ...
+ * }
+ * }</pre>
+ */
+public final class ReplicaRouting {
+    private static final ThreadLocal<Boolean> REPLICA_ALLOWED = new ThreadLocal<>();
+
+    private ReplicaRouting() {
+    }
+
+    /**
+     * Lets read-only transactions on this thread run on the replica until the scope is closed.
+     */
+    public static Scope allowReplica() {
+        return enter(true);
+    }
+
+    /**
+     * Keeps all transactions on this thread on the primary until the scope is closed. Used for reads that are cached
+     * or that decide about writes, which must not see a lagging replica.
+     */
+    public static Scope primaryOnly() {
+        return enter(false);
+    }
+
+    public static boolean isReplicaAllowed() {
+        return Boolean.TRUE.equals(REPLICA_ALLOWED.get());
+    }
+
+    private static Scope enter(boolean replicaAllowed) {
+        boolean previous = isReplicaAllowed();
+        REPLICA_ALLOWED.set(replicaAllowed);
+        return () -> {
+            if (previous) {
+                REPLICA_ALLOWED.set(true);
+            } else {
+                REPLICA_ALLOWED.remove();
+            }
+        };
+    }
+
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
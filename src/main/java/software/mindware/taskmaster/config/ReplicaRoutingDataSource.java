@@ -0,0 +1,35 @@
+package software.mindware.taskmaster.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Hands out replica connections to read-only transactions on threads that allow it ({@link ReplicaRouting}), and
+ * primary connections to everything else.
+ * <p>
+ * The read-only flag is only known once the transaction has started, so this must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, which fetches the connection on the
+ * first statement.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    private enum Target {
+        PRIMARY, REPLICA
+    }
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica) {
+        setTargetDataSources(Map.<Object, Object>of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (ReplicaRouting.isReplicaAllowed() && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return Target.REPLICA;
+        }
+        return Target.PRIMARY;
+    }
+}
@@ -0,0 +1,21 @@
+package software.mindware.taskmaster.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "One challenge of a bulk import")
+public class ChallengeImportRow {
+    @Schema(description = "Challenge title", example = "Build a tower")
+    private String title;
+    @Schema(description = "Challenge description")
+    private String description;
+    @Schema(description = "Start date in UTC", example = "2025-06-03T15:00:00Z", format = "date-time")
+    private String startDate;
+}
@@ -0,0 +1,17 @@
+package software.mindware.taskmaster.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Instant;
+
+@AllArgsConstructor
+@Data
+@Schema(description = "Challenge as shown to teams")
+public class ChallengeSummary {
+    private Long id;
+    private String title;
+    private String description;
+    private Instant startDate;
+}
@@ -0,0 +1,25 @@
+package software.mindware.taskmaster.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@AllArgsConstructor
+@Data
+@Schema(description = "Outcome of a bulk import. If there are errors, nothing was imported")
+public class ImportResult {
+    private int imported;
+    private List<RowError> errors;
+
+    @AllArgsConstructor
+    @Data
+    @Schema(description = "A row that failed validation")
+    public static class RowError {
+        @Schema(description = "Row number, starting at 1 and not counting the CSV header")
+        private int row;
+        private String field;
+        private String message;
+    }
+}
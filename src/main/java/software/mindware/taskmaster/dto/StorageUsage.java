@@ -0,0 +1,31 @@
+package software.mindware.taskmaster.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@AllArgsConstructor
+@Data
+@Schema(description = "Bytes and files used by submissions, from counters kept up to date with every upload and deletion")
+public class StorageUsage {
+    private long totalBytes;
+    private long totalFiles;
+    @Schema(description = "Byte quota per team, 0 if there is none")
+    private long teamQuota;
+    @Schema(description = "Byte quota per challenge, 0 if there is none")
+    private long challengeQuota;
+    private List<UsageEntry> challenges;
+    private List<UsageEntry> teams;
+
+    @AllArgsConstructor
+    @Data
+    @Schema(description = "Usage of one team or challenge")
+    public static class UsageEntry {
+        @Schema(description = "Team or challenge ID")
+        private long id;
+        private long bytes;
+        private long files;
+    }
+}
@@ -0,0 +1,12 @@
+package software.mindware.taskmaster.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@AllArgsConstructor
+@Data
+public class StreamUploadResponse {
+    private String contentType;
+    private long size;
+    private String sha256;
+}
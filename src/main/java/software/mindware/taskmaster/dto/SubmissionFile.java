@@ -0,0 +1,14 @@
+package software.mindware.taskmaster.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Instant;
+
+@AllArgsConstructor
+@Data
+public class SubmissionFile {
+    private long id;
+    private String fileName;
+    private Instant fileMissingSince;
+}
@@ -0,0 +1,19 @@
+package software.mindware.taskmaster.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "One team of a bulk import")
+public class TeamImportRow {
+    @Schema(description = "Team name", example = "teamA")
+    private String teamName;
+    @Schema(description = "Authentication code", example = "1234")
+    private String code;
+}
@@ -0,0 +1,13 @@
+package software.mindware.taskmaster.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@AllArgsConstructor
+@Data
+@Schema(description = "Team as listed to admins")
+public class TeamSummary {
+    private Long id;
+    private String teamName;
+}
@@ -0,0 +1,13 @@
+package software.mindware.taskmaster.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@AllArgsConstructor
+@Data
+@Schema(description = "Upload limits of a challenge, empty values use the server defaults")
+public class UploadLimits {
+    private Integer maxConcurrentUploadsPerTeam;
+    private Long uploadBytesPerSecondPerTeam;
+}
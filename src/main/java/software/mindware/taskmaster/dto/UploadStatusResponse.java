@@ -0,0 +1,12 @@
+package software.mindware.taskmaster.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@AllArgsConstructor
+@Data
+public class UploadStatusResponse {
+    private String uploadId;
+    private long offset;
+    private long size;
+}
@@ -20,6 +20,12 @@ public class Challenge {
     private String description;
     private Instant startDate;
 
+    /**
+     * Upload limits for this challenge, null means the {@code upload.admission.*} default.
+     */
+    private Integer maxConcurrentUploadsPerTeam;
+    private Long uploadBytesPerSecondPerTeam;
+
     @OneToMany(mappedBy = "challenge", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonManagedReference
     private List<Submission> submissions;
@@ -19,6 +19,21 @@ public class Submission {
     private String fileName;
     private Instant uploadedAt;
 
+    /**
+     * Size of the file in bytes, null for old submissions until their size has been backfilled.
+     */
+    private Long size;
+
+    /**
+     * Hex SHA-256 of the file, null for submissions from before hashes were recorded.
+     */
+    private String sha256;
+
+    /**
+     * When the storage reconciler found the file missing, null while it exists.
+     */
+    private Instant fileMissingSince;
+
     @ManyToOne
     @JoinColumn(name = "challenge_id")
     @JsonBackReference
@@ -21,10 +21,19 @@ public class Team {
     @JsonIgnore
     private String code;
 
+    /**
+     * Legacy {@code teamName_uuid} tokens. New logins get signed tokens instead, see TeamTokenService.
+     */
     @ElementCollection
     @JsonIgnore
     private List<String> authenticationCodes;
 
+    /**
+     * Bumped to revoke all tokens issued to this team.
+     */
+    @JsonIgnore
+    private int tokenEpoch;
+
     @OneToMany(mappedBy = "team", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonBackReference
     private List<Submission> submission;
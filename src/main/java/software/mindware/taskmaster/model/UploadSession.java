@@ -0,0 +1,26 @@
+package software.mindware.taskmaster.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Entity
+@Getter
+@Setter
+public class UploadSession {
+    @Id
+    private String id;
+
+    private Long teamId;
+    private String teamName;
+    private Long challengeId;
+    private String fileName;
+    private String contentType;
+    private long size;
+    private long receivedBytes;
+    private Instant createdAt;
+    private Instant updatedAt;
+}
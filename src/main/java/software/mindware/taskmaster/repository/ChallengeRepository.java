@@ -1,7 +1,13 @@
 package software.mindware.taskmaster.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import software.mindware.taskmaster.dto.ChallengeSummary;
+import software.mindware.taskmaster.dto.UploadLimits;
 import software.mindware.taskmaster.model.Challenge;
 
 import java.time.Instant;
@@ -9,7 +15,21 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
+@Transactional(readOnly = true)
 public interface ChallengeRepository extends JpaRepository<Challenge, Long> {
     Optional<Challenge> findFirstByStartDateBeforeOrderByStartDateDesc(Instant now);
     List<Challenge> findAllByStartDateBeforeOrderByStartDateDesc(Instant now);
+    Optional<Challenge> findFirstByStartDateGreaterThanEqualOrderByStartDateAsc(Instant now);
+
+    @Query("select new software.mindware.taskmaster.dto.ChallengeSummary(c.id, c.title, c.description, c.startDate) " +
+            "from Challenge c where c.startDate < :now order by c.startDate desc")
+    List<ChallengeSummary> findSummariesStartedBefore(@Param("now") Instant now);
+
+    @Query("select new software.mindware.taskmaster.dto.ChallengeSummary(c.id, c.title, c.description, c.startDate) " +
+            "from Challenge c where c.id > :afterId order by c.id")
+    List<ChallengeSummary> findSummariesAfter(@Param("afterId") long afterId, Limit limit);
+
+    @Query("select new software.mindware.taskmaster.dto.UploadLimits(c.maxConcurrentUploadsPerTeam, c.uploadBytesPerSecondPerTeam) " +
+            "from Challenge c where c.id = :challengeId")
+    Optional<UploadLimits> findUploadLimitsById(@Param("challengeId") long challengeId);
 }
@@ -1,15 +1,74 @@
 package software.mindware.taskmaster.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import software.mindware.taskmaster.dto.CountResponse;
+import software.mindware.taskmaster.dto.SubmissionFile;
 import software.mindware.taskmaster.model.Challenge;
 import software.mindware.taskmaster.model.Submission;
 import software.mindware.taskmaster.model.Team;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
+@Transactional(readOnly = true)
 public interface SubmissionRepository extends JpaRepository<Submission, Long> {
     List<Submission> findAllByTeamAndChallenge(Team team, Challenge challenge);
     long countByTeamAndChallenge(Team team, Challenge challenge);
+    List<Submission> findTop500ByFileNameNotContaining(String fragment);
+    List<Submission> findTop500BySizeIsNullAndIdGreaterThanOrderById(Long afterId);
+
+    @Query("select new software.mindware.taskmaster.dto.CountResponse(s.team.id, s.challenge.id, count(s)) " +
+            "from Submission s group by s.team.id, s.challenge.id")
+    List<CountResponse> countGroupedByTeamAndChallenge();
+
+    @Query("select new software.mindware.taskmaster.dto.CountResponse(s.team.id, s.challenge.id, count(s)) " +
+            "from Submission s where s.challenge.id = :challengeId group by s.team.id, s.challenge.id")
+    List<CountResponse> countGroupedByTeamForChallenge(@Param("challengeId") Long challengeId);
+
+    @Query("select s.fileName from Submission s where s.challenge.id = :challengeId")
+    List<String> findFileNamesByChallengeId(@Param("challengeId") Long challengeId);
+
+    @Query("select s.fileName from Submission s where s.team.id = :teamId")
+    List<String> findFileNamesByTeamId(@Param("teamId") Long teamId);
+
+    @Query("select s.fileName from Submission s where s.fileName in :fileNames")
+    List<String> findFileNamesIn(@Param("fileNames") Collection<String> fileNames);
+
+    @Query("select new software.mindware.taskmaster.dto.SubmissionFile(s.id, s.fileName, s.fileMissingSince) " +
+            "from Submission s where s.id > :afterId order by s.id")
+    List<SubmissionFile> findFilesAfter(@Param("afterId") long afterId, Limit limit);
+
+    @Query("select distinct s.challenge.id from Submission s where s.team.id = :teamId")
+    List<Long> findChallengeIdsByTeamId(@Param("teamId") Long teamId);
+
+    @Query("select s.fileName from Submission s where s.team.id = :teamId and s.challenge.id = :challengeId")
+    List<String> findFileNamesByTeamIdAndChallengeId(@Param("teamId") Long teamId, @Param("challengeId") Long challengeId);
+
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("delete from Submission s where s.challenge.id = :challengeId")
+    int deleteAllByChallengeId(@Param("challengeId") Long challengeId);
+
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("delete from Submission s where s.team.id = :teamId")
+    int deleteAllByTeamId(@Param("teamId") Long teamId);
+
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("delete from Submission s where s.team.id = :teamId and s.challenge.id = :challengeId")
+    int deleteAllByTeamIdAndChallengeId(@Param("teamId") Long teamId, @Param("challengeId") Long challengeId);
+
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("update Submission s set s.fileMissingSince = :since where s.id in :ids")
+    int updateFileMissingSince(@Param("ids") Collection<Long> ids, @Param("since") Instant since);
 }
@@ -1,12 +1,29 @@
 package software.mindware.taskmaster.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import software.mindware.taskmaster.dto.TeamSummary;
 import software.mindware.taskmaster.model.Team;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
+@Transactional(readOnly = true)
 public interface TeamRepository extends JpaRepository<Team, Long> {
     Optional<Team> findFirstByTeamName(String teamName);
+
+    @Query("select t.teamName from Team t where t.teamName in :teamNames")
+    List<String> findTeamNamesIn(@Param("teamNames") Collection<String> teamNames);
+
+    @Query("select t.tokenEpoch from Team t where t.id = :id")
+    Optional<Integer> findTokenEpochById(@Param("id") Long id);
+
+    @Query("select new software.mindware.taskmaster.dto.TeamSummary(t.id, t.teamName) from Team t where t.id > :afterId order by t.id")
+    List<TeamSummary> findSummariesAfter(@Param("afterId") long afterId, Limit limit);
 }
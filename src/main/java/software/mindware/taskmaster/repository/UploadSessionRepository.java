@@ -0,0 +1,34 @@
+package software.mindware.taskmaster.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import software.mindware.taskmaster.model.UploadSession;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+@Transactional(readOnly = true)
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+    List<UploadSession> findAllByUpdatedAtBefore(Instant cutoff);
+
+    @Query("select u.fileName from UploadSession u where u.fileName in :fileNames")
+    List<String> findFileNamesIn(@Param("fileNames") Collection<String> fileNames);
+
+    /**
+     * Records the progress of a session, but only if its received bytes are still {@code expected}, so that two nodes
+     * writing the same session cannot both move the offset.
+     *
+     * @return 1 if the session was updated, 0 if its received bytes changed in the meantime or it is gone
+     */
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("update UploadSession u set u.receivedBytes = :receivedBytes, u.updatedAt = :updatedAt where u.id = :id and u.receivedBytes = :expected")
+    int updateReceivedBytes(@Param("id") String id, @Param("expected") long expected,
+                            @Param("receivedBytes") long receivedBytes, @Param("updatedAt") Instant updatedAt);
+}
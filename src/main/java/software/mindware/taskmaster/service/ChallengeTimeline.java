@@ -0,0 +1,134 @@
+package software.mindware.taskmaster.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.mindware.taskmaster.config.ReplicaRouting;
+import software.mindware.taskmaster.dto.ChallengeSummary;
+import software.mindware.taskmaster.model.Challenge;
+import software.mindware.taskmaster.repository.ChallengeRepository;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory view of which challenges have started. The answer only changes when the next challenge starts or when
+ * the schedule is edited, so the database is only queried at those moments instead of on every request.
+ * {@link #invalidate()} only reaches this node, so the view is also reloaded after {@code challenge.timeline-ttl} to
+ * pick up edits made on other nodes.
+ * <p>
+ * Each view has a version derived from its contents, which clients can use to revalidate cached responses without a
+ * query. Nodes that loaded the same schedule therefore give it the same version.
+ */
+@Component
+public class ChallengeTimeline {
+    private final ChallengeRepository challengeRepository;
+    private final Duration ttl;
+
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Schedule snapshot;
+
+    public ChallengeTimeline(ChallengeRepository challengeRepository,
+                             @Value("${challenge.timeline-ttl:PT30S}") Duration ttl) {
+        this.challengeRepository = challengeRepository;
+        this.ttl = ttl;
+    }
+
+    /**
+     * @return the challenge that started most recently, if any
+     */
+    public Optional<ChallengeSummary> getCurrentChallenge() {
+        List<ChallengeSummary> started = getStartedChallenges();
+        return started.isEmpty() ? Optional.empty() : Optional.of(started.get(0));
+    }
+
+    /**
+     * @return all challenges that have started, most recent first
+     */
+    public List<ChallengeSummary> getStartedChallenges() {
+        return getSchedule().started();
+    }
+
+    /**
+     * @return the challenges that have started, with the version of this view and when it expires
+     */
+    public Schedule getSchedule() {
+        Instant now = Instant.now();
+        Schedule current = this.snapshot;
+        if (current == null || current.isExpired(now)) {
+            current = reload(now);
+        }
+        return current;
+    }
+
+    /**
+     * Drops the cached view of this node. Must be called after every change to the challenge schedule.
+     */
+    public void invalidate() {
+        this.generation.incrementAndGet();
+        this.snapshot = null;
+    }
+
+    private synchronized Schedule reload(Instant now) {
+        Schedule current = this.snapshot;
+        if (current != null && !current.isExpired(now)) {
+            return current;
+        }
+        long loadedGeneration = this.generation.get();
+        List<ChallengeSummary> started;
+        Instant nextStart;
+        // A view loaded from a lagging replica would be served until the next challenge starts
+        try (ReplicaRouting.Scope scope = ReplicaRouting.primaryOnly()) {
+            started = List.copyOf(this.challengeRepository.findSummariesStartedBefore(now));
+            nextStart = this.challengeRepository.findFirstByStartDateGreaterThanEqualOrderByStartDateAsc(now)
+                    .map(Challenge::getStartDate)
+                    .orElse(null);
+        }
+        Instant expiresAt = now.plus(this.ttl);
+        if (nextStart != null && nextStart.isBefore(expiresAt)) {
+            expiresAt = nextStart;
+        }
+        Schedule loaded = new Schedule(version(started, nextStart), started, nextStart, expiresAt);
+        // Only publish if the schedule was not changed while we were querying it
+        if (this.generation.get() == loadedGeneration) {
+            this.snapshot = loaded;
+        }
+        return loaded;
+    }
+
+    /**
+     * @return the first 8 bytes of a SHA-256 over everything the view contains
+     */
+    private static long version(List<ChallengeSummary> started, Instant nextStart) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        for (ChallengeSummary challenge : started) {
+            String fields = challenge.getId() + "\0" + challenge.getTitle() + "\0" + challenge.getDescription() + "\0" + challenge.getStartDate() + "\0";
+            digest.update(fields.getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update(String.valueOf(nextStart).getBytes(StandardCharsets.UTF_8));
+        return ByteBuffer.wrap(digest.digest()).getLong();
+    }
+
+    /**
+     * @param version   changes whenever a started challenge is edited, a challenge starts or the next start moves
+     * @param nextStart when the next challenge starts, null if none is scheduled
+     * @param expiresAt when the view is reloaded: the next start, or {@code challenge.timeline-ttl} after loading if
+     *                  that is sooner
+     */
+    public record Schedule(long version, List<ChallengeSummary> started, Instant nextStart, Instant expiresAt) {
+        boolean isExpired(Instant now) {
+            return !now.isBefore(this.expiresAt);
+        }
+    }
+}
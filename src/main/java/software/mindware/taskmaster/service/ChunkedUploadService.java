@@ -0,0 +1,232 @@
+package software.mindware.taskmaster.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import software.mindware.taskmaster.config.ReplicaRouting;
+import software.mindware.taskmaster.dto.ChallengeSummary;
+import software.mindware.taskmaster.model.Submission;
+import software.mindware.taskmaster.model.UploadSession;
+import software.mindware.taskmaster.repository.ChallengeRepository;
+import software.mindware.taskmaster.repository.TeamRepository;
+import software.mindware.taskmaster.repository.UploadSessionRepository;
+import software.mindware.taskmaster.service.TeamTokenService.TeamToken;
+import software.mindware.taskmaster.storage.SubmissionStorage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Resumable uploads: a session is initiated with the final size, chunks are written at increasing offsets straight
+ * into the final file in {@link SubmissionStorage}, and the submission is only created once every byte has arrived. Progress is stored per
+ * session, so a dropped connection resumes from the last byte written instead of from zero.
+ * <p>
+ * Requests for one session take turns through a lock on this node. Across nodes, progress is only recorded if the
+ * received bytes did not change since the chunk started, so of two nodes writing at once only one moves the offset.
+ */
+@Service
+public class ChunkedUploadService {
+    private static final Logger log = LoggerFactory.getLogger(ChunkedUploadService.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final TeamRepository teamRepository;
+    private final ChallengeRepository challengeRepository;
+    private final SubmissionStorage submissionStorage;
+    private final StorageUsageService storageUsageService;
+
+    @Value("${upload.chunked.max-size:${upload.max-size:1000MB}}")
+    private DataSize maxSize;
+
+    @Value("${upload.chunked.session-ttl:PT24H}")
+    private Duration sessionTtl;
+
+    private final Map<String, ReentrantLock> locks = new ConcurrentHashMap<>();
+
+    public ChunkedUploadService(UploadSessionRepository uploadSessionRepository, TeamRepository teamRepository,
+                                ChallengeRepository challengeRepository, SubmissionStorage submissionStorage,
+                                StorageUsageService storageUsageService) {
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.teamRepository = teamRepository;
+        this.challengeRepository = challengeRepository;
+        this.submissionStorage = submissionStorage;
+        this.storageUsageService = storageUsageService;
+    }
+
+    public long getMaxSize() {
+        return this.maxSize.toBytes();
+    }
+
+    public UploadSession initiate(TeamToken team, ChallengeSummary challenge, String contentType, long size) throws IOException {
+        // Empty for types ContentSniffer does not know, the client's file name is never used
+        String extension = ContentSniffer.extensionFor(contentType);
+        String fileName = this.submissionStorage.createKey(team.teamName(), challenge.getId(), extension);
+        this.submissionStorage.openChannel(fileName, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE).close();
+
+        Instant now = Instant.now();
+        UploadSession session = new UploadSession();
+        session.setId(UUID.randomUUID().toString());
+        session.setTeamId(team.teamId());
+        session.setTeamName(team.teamName());
+        session.setChallengeId(challenge.getId());
+        session.setFileName(fileName);
+        session.setContentType(contentType);
+        session.setSize(size);
+        session.setReceivedBytes(0);
+        session.setCreatedAt(now);
+        session.setUpdatedAt(now);
+        return this.uploadSessionRepository.save(session);
+    }
+
+    public Optional<UploadSession> find(String uploadId) {
+        // Clients resume from the received bytes, which must include the chunk they just sent
+        try (ReplicaRouting.Scope scope = ReplicaRouting.primaryOnly()) {
+            return this.uploadSessionRepository.findById(uploadId);
+        }
+    }
+
+    /**
+     * Writes a chunk at the given offset. The offset may not lie beyond the bytes received so far, but may lie before
+     * it so that a chunk whose acknowledgement got lost can simply be sent again.
+     * Bytes written before a connection drop are still recorded.
+     */
+    public ChunkResult writeChunk(String uploadId, long offset, InputStream body) throws IOException {
+        ReentrantLock lock = this.locks.computeIfAbsent(uploadId, id -> new ReentrantLock());
+        if (!lock.tryLock()) {
+            // The offset the other request started from, or further if it already finished
+            return find(uploadId)
+                    .map(session -> new ChunkResult(ChunkStatus.BUSY, session.getReceivedBytes()))
+                    .orElseGet(() -> new ChunkResult(ChunkStatus.NOT_FOUND, -1));
+        }
+        try {
+            Optional<UploadSession> optionalSession = this.uploadSessionRepository.findById(uploadId);
+            if (optionalSession.isEmpty()) {
+                return new ChunkResult(ChunkStatus.NOT_FOUND, -1);
+            }
+            UploadSession session = optionalSession.get();
+            long received = session.getReceivedBytes();
+            if (offset < 0 || offset > received) {
+                return new ChunkResult(ChunkStatus.OFFSET_MISMATCH, received);
+            }
+
+            long position = offset;
+            boolean tooLarge = false;
+            boolean recorded;
+            try (SeekableByteChannel channel = this.submissionStorage.openChannel(session.getFileName(), StandardOpenOption.WRITE)) {
+                channel.position(offset);
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while (position < session.getSize()
+                        && (read = body.read(buffer, 0, (int) Math.min(BUFFER_SIZE, session.getSize() - position))) != -1) {
+                    ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+                    while (byteBuffer.hasRemaining()) {
+                        channel.write(byteBuffer);
+                    }
+                    position += read;
+                }
+                if (position == session.getSize() && body.read() != -1) {
+                    tooLarge = true;
+                }
+            } finally {
+                recorded = this.uploadSessionRepository.updateReceivedBytes(uploadId, received, Math.max(position, received), Instant.now()) == 1;
+            }
+            if (!recorded) {
+                // Another node wrote to the session at the same time; the client resumes from what that one recorded
+                return find(uploadId)
+                        .map(current -> new ChunkResult(ChunkStatus.OFFSET_MISMATCH, current.getReceivedBytes()))
+                        .orElseGet(() -> new ChunkResult(ChunkStatus.NOT_FOUND, -1));
+            }
+            if (tooLarge) {
+                return new ChunkResult(ChunkStatus.TOO_LARGE, Math.max(position, received));
+            }
+            return new ChunkResult(ChunkStatus.OK, Math.max(position, received));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Turns a fully received session into a submission. If that would exceed a storage quota, the session is kept so
+     * the team can complete it after freeing space.
+     */
+    public CompleteResult complete(String uploadId) throws IOException {
+        ReentrantLock lock = this.locks.computeIfAbsent(uploadId, id -> new ReentrantLock());
+        if (!lock.tryLock()) {
+            return new CompleteResult(CompleteStatus.INCOMPLETE, null);
+        }
+        try {
+            Optional<UploadSession> optionalSession = this.uploadSessionRepository.findById(uploadId);
+            if (optionalSession.isEmpty() || optionalSession.get().getReceivedBytes() != optionalSession.get().getSize()) {
+                return new CompleteResult(CompleteStatus.INCOMPLETE, null);
+            }
+            UploadSession session = optionalSession.get();
+
+            Submission submission = new Submission();
+            submission.setTeam(this.teamRepository.getReferenceById(session.getTeamId()));
+            submission.setChallenge(this.challengeRepository.getReferenceById(session.getChallengeId()));
+            submission.setUploadedAt(Instant.now());
+            submission.setFileName(session.getFileName());
+            submission.setSize(session.getSize());
+            submission.setSha256(this.submissionStorage.sha256(session.getFileName()));
+            if (this.storageUsageService.save(submission).isEmpty()) {
+                return new CompleteResult(CompleteStatus.QUOTA_EXCEEDED, null);
+            }
+
+            this.uploadSessionRepository.delete(session);
+            this.locks.remove(uploadId);
+            return new CompleteResult(CompleteStatus.OK, submission);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${upload.chunked.cleanup-interval:PT15M}")
+    public void removeAbandonedSessions() {
+        Instant cutoff = Instant.now().minus(this.sessionTtl);
+        for (UploadSession session : this.uploadSessionRepository.findAllByUpdatedAtBefore(cutoff)) {
+            ReentrantLock lock = this.locks.computeIfAbsent(session.getId(), id -> new ReentrantLock());
+            if (!lock.tryLock()) {
+                continue;
+            }
+            try {
+                this.submissionStorage.delete(session.getFileName());
+                this.uploadSessionRepository.delete(session);
+                this.locks.remove(session.getId());
+            } catch (IOException e) {
+                log.warn("Could not remove abandoned upload {}", session.getFileName(), e);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public enum ChunkStatus {
+        OK, NOT_FOUND, BUSY, OFFSET_MISMATCH, TOO_LARGE
+    }
+
+    public record ChunkResult(ChunkStatus status, long offset) {
+    }
+
+    public enum CompleteStatus {
+        OK, INCOMPLETE, QUOTA_EXCEEDED
+    }
+
+    /**
+     * @param submission the new submission if the status is OK, otherwise null
+     */
+    public record CompleteResult(CompleteStatus status, Submission submission) {
+    }
+}
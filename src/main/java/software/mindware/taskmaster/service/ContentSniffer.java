@@ -0,0 +1,107 @@
+package software.mindware.taskmaster.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Detects image and video files from their first bytes, so uploads do not have to trust the content type the client
+ * claims.
+ */
+public final class ContentSniffer {
+    /**
+     * Number of leading bytes {@link #detect(byte[], int)} needs to recognise every supported format.
+     */
+    public static final int HEADER_SIZE = 16;
+
+    private static final Map<String, String> EXTENSIONS = Map.ofEntries(
+            Map.entry("image/jpeg", ".jpg"),
+            Map.entry("image/png", ".png"),
+            Map.entry("image/gif", ".gif"),
+            Map.entry("image/webp", ".webp"),
+            Map.entry("image/bmp", ".bmp"),
+            Map.entry("image/tiff", ".tiff"),
+            Map.entry("image/heic", ".heic"),
+            Map.entry("image/avif", ".avif"),
+            Map.entry("video/mp4", ".mp4"),
+            Map.entry("video/quicktime", ".mov"),
+            Map.entry("video/x-msvideo", ".avi"),
+            Map.entry("video/webm", ".webm"),
+            Map.entry("video/mpeg", ".mpg"),
+            Map.entry("video/x-flv", ".flv")
+    );
+
+    private ContentSniffer() {
+    }
+
+    /**
+     * @return the detected image or video content type, or empty if the header does not belong to one
+     */
+    public static Optional<String> detect(byte[] header, int length) {
+        if (startsWith(header, length, 0, 0xFF, 0xD8, 0xFF)) {
+            return Optional.of("image/jpeg");
+        }
+        if (startsWith(header, length, 0, 0x89, 'P', 'N', 'G')) {
+            return Optional.of("image/png");
+        }
+        if (startsWith(header, length, 0, 'G', 'I', 'F', '8')) {
+            return Optional.of("image/gif");
+        }
+        if (startsWith(header, length, 0, 'B', 'M')) {
+            return Optional.of("image/bmp");
+        }
+        if (startsWith(header, length, 0, 'I', 'I', 0x2A, 0x00) || startsWith(header, length, 0, 'M', 'M', 0x00, 0x2A)) {
+            return Optional.of("image/tiff");
+        }
+        if (startsWith(header, length, 0, 'R', 'I', 'F', 'F')) {
+            if (startsWith(header, length, 8, 'W', 'E', 'B', 'P')) {
+                return Optional.of("image/webp");
+            }
+            if (startsWith(header, length, 8, 'A', 'V', 'I', ' ')) {
+                return Optional.of("video/x-msvideo");
+            }
+            return Optional.empty();
+        }
+        if (startsWith(header, length, 4, 'f', 't', 'y', 'p') && length >= 12) {
+            String brand = new String(header, 8, 4, StandardCharsets.US_ASCII);
+            return switch (brand) {
+                case "heic", "heix", "mif1", "msf1" -> Optional.of("image/heic");
+                case "avif", "avis" -> Optional.of("image/avif");
+                case "qt  " -> Optional.of("video/quicktime");
+                case "isom", "iso2", "iso4", "iso5", "iso6", "mp41", "mp42", "avc1", "dash", "M4V ", "f4v " ->
+                        Optional.of("video/mp4");
+                // Audio (M4A), 3GPP and other ISO media files are not supported
+                default -> Optional.empty();
+            };
+        }
+        if (startsWith(header, length, 0, 0x1A, 0x45, 0xDF, 0xA3)) {
+            return Optional.of("video/webm");
+        }
+        if (startsWith(header, length, 0, 0x00, 0x00, 0x01, 0xBA) || startsWith(header, length, 0, 0x00, 0x00, 0x01, 0xB3)) {
+            return Optional.of("video/mpeg");
+        }
+        if (startsWith(header, length, 0, 'F', 'L', 'V')) {
+            return Optional.of("video/x-flv");
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @return the usual file extension for a content type returned by {@link #detect(byte[], int)}, including the dot
+     */
+    public static String extensionFor(String contentType) {
+        return EXTENSIONS.getOrDefault(contentType, "");
+    }
+
+    private static boolean startsWith(byte[] header, int length, int offset, int... magic) {
+        if (length < offset + magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if ((header[offset + i] & 0xFF) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
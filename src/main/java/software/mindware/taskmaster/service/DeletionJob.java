@@ -0,0 +1,53 @@
+package software.mindware.taskmaster.service;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Progress of reclaiming the files of deleted submissions. The rows are already gone when a job is created.
+ */
+@Schema(description = "Background file deletion job")
+@Getter
+public class DeletionJob {
+    public enum State {
+        RUNNING, DONE
+    }
+
+    private final String id;
+    private final int totalFiles;
+    private final Instant createdAt;
+    private final AtomicInteger deletedFiles = new AtomicInteger();
+    private final AtomicInteger failedFiles = new AtomicInteger();
+    private volatile State state = State.RUNNING;
+    private volatile Instant finishedAt;
+
+    DeletionJob(String id, int totalFiles) {
+        this.id = id;
+        this.totalFiles = totalFiles;
+        this.createdAt = Instant.now();
+    }
+
+    public int getDeletedFiles() {
+        return deletedFiles.get();
+    }
+
+    public int getFailedFiles() {
+        return failedFiles.get();
+    }
+
+    void fileDeleted() {
+        deletedFiles.incrementAndGet();
+    }
+
+    void fileFailed() {
+        failedFiles.incrementAndGet();
+    }
+
+    void finish() {
+        finishedAt = Instant.now();
+        state = State.DONE;
+    }
+}
@@ -0,0 +1,165 @@
+package software.mindware.taskmaster.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import software.mindware.taskmaster.repository.ChallengeRepository;
+import software.mindware.taskmaster.repository.SubmissionRepository;
+import software.mindware.taskmaster.repository.TeamRepository;
+import software.mindware.taskmaster.storage.SubmissionStorage;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Deletes submissions in two steps: the rows go in one set-based transaction on the request thread, the files are
+ * reclaimed afterwards by a small worker pool in parallel batches. Progress is tracked as a {@link DeletionJob}.
+ */
+@Service
+public class DeletionService {
+    private static final Logger log = LoggerFactory.getLogger(DeletionService.class);
+    private static final Duration JOB_RETENTION = Duration.ofHours(1);
+
+    private final SubmissionRepository submissionRepository;
+    private final ChallengeRepository challengeRepository;
+    private final TeamRepository teamRepository;
+    private final SubmissionStorage submissionStorage;
+    private final PreviewService previewService;
+    private final SubmissionFeed submissionFeed;
+    private final ExportArchiveService exportArchiveService;
+    private final StorageUsageService storageUsageService;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor;
+    private final int batchSize;
+
+    private final Map<String, DeletionJob> jobs = new ConcurrentHashMap<>();
+
+    public DeletionService(SubmissionRepository submissionRepository, ChallengeRepository challengeRepository,
+                           TeamRepository teamRepository, SubmissionStorage submissionStorage, PreviewService previewService,
+                           SubmissionFeed submissionFeed, ExportArchiveService exportArchiveService,
+                           StorageUsageService storageUsageService, TransactionTemplate transactionTemplate,
+                           @Value("${deletion.workers:4}") int workers,
+                           @Value("${deletion.batch-size:200}") int batchSize) {
+        this.submissionRepository = submissionRepository;
+        this.challengeRepository = challengeRepository;
+        this.teamRepository = teamRepository;
+        this.submissionStorage = submissionStorage;
+        this.previewService = previewService;
+        this.submissionFeed = submissionFeed;
+        this.exportArchiveService = exportArchiveService;
+        this.storageUsageService = storageUsageService;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "file-reclaimer-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Deletes a challenge and all of its submissions.
+     */
+    public DeletionJob deleteChallenge(Long challengeId) {
+        List<String> fileNames = this.transactionTemplate.execute(status -> {
+            this.storageUsageService.subtract(null, challengeId);
+            List<String> names = this.submissionRepository.findFileNamesByChallengeId(challengeId);
+            int deleted = this.submissionRepository.deleteAllByChallengeId(challengeId);
+            this.challengeRepository.deleteById(challengeId);
+            this.submissionFeed.submissionsDeleted(null, challengeId, deleted);
+            this.submissionFeed.challengeChanged(challengeId, "deleted");
+            return names;
+        });
+        this.exportArchiveService.delete(challengeId);
+        return reclaim(fileNames);
+    }
+
+    /**
+     * Deletes a team and all of its submissions.
+     */
+    public DeletionJob deleteTeam(Long teamId) {
+        List<Long> challengeIds = new ArrayList<>();
+        List<String> fileNames = this.transactionTemplate.execute(status -> {
+            this.storageUsageService.subtract(teamId, null);
+            challengeIds.addAll(this.submissionRepository.findChallengeIdsByTeamId(teamId));
+            List<String> names = this.submissionRepository.findFileNamesByTeamId(teamId);
+            int deleted = this.submissionRepository.deleteAllByTeamId(teamId);
+            this.teamRepository.deleteById(teamId);
+            this.submissionFeed.submissionsDeleted(teamId, null, deleted);
+            return names;
+        });
+        challengeIds.forEach(this.exportArchiveService::scheduleUpdate);
+        return reclaim(fileNames);
+    }
+
+    /**
+     * Deletes the submissions of one team for one challenge.
+     */
+    public DeletionJob deleteTeamSubmissionsForChallenge(Long teamId, Long challengeId) {
+        List<String> fileNames = this.transactionTemplate.execute(status -> {
+            this.storageUsageService.subtract(teamId, challengeId);
+            List<String> names = this.submissionRepository.findFileNamesByTeamIdAndChallengeId(teamId, challengeId);
+            int deleted = this.submissionRepository.deleteAllByTeamIdAndChallengeId(teamId, challengeId);
+            this.submissionFeed.submissionsDeleted(teamId, challengeId, deleted);
+            return names;
+        });
+        this.exportArchiveService.scheduleUpdate(challengeId);
+        return reclaim(fileNames);
+    }
+
+    public Optional<DeletionJob> getJob(String jobId) {
+        return Optional.ofNullable(this.jobs.get(jobId));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.executor.shutdown();
+    }
+
+    private DeletionJob reclaim(List<String> fileNames) {
+        removeExpiredJobs();
+        DeletionJob job = new DeletionJob(UUID.randomUUID().toString(), fileNames.size());
+        this.jobs.put(job.getId(), job);
+
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        for (int start = 0; start < fileNames.size(); start += this.batchSize) {
+            List<String> batch = fileNames.subList(start, Math.min(start + this.batchSize, fileNames.size()));
+            batches.add(CompletableFuture.runAsync(() -> deleteFiles(job, batch), this.executor));
+        }
+        CompletableFuture.allOf(batches.toArray(CompletableFuture[]::new)).whenComplete((result, error) -> job.finish());
+        return job;
+    }
+
+    private void deleteFiles(DeletionJob job, List<String> fileNames) {
+        for (String fileName : fileNames) {
+            try {
+                this.submissionStorage.delete(fileName);
+                this.previewService.deletePreviews(fileName);
+                job.fileDeleted();
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not delete submission file {}", fileName, e);
+                job.fileFailed();
+            }
+        }
+    }
+
+    private void removeExpiredJobs() {
+        Instant cutoff = Instant.now().minus(JOB_RETENTION);
+        this.jobs.values().removeIf(job -> job.getFinishedAt() != null && job.getFinishedAt().isBefore(cutoff));
+    }
+}
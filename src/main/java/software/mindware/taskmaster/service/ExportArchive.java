@@ -0,0 +1,584 @@
+package software.mindware.taskmaster.service;
+
+import software.mindware.taskmaster.storage.SubmissionStorage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import java.util.zip.ZipException;
+
+/**
+ * The pre-built ZIP export of one challenge, kept as a single file in {@link SubmissionStorage}.
+ * <p>
+ * Entries are STORED and only ever appended: a new file is written over the old central directory, followed by a new
+ * central directory. Everything before the central directory therefore never changes, and a {@link Snapshot} can be
+ * read from the file while later entries are appended, with the central directory of its own time kept in memory.
+ * Removing entries rewrites the archive into a new file that replaces the old one, so open snapshots keep reading
+ * the old file.
+ * <p>
+ * Every operation must run under {@link #lock()} or {@link #tryLock()}, which also keep out other nodes that share
+ * the storage.
+ */
+public class ExportArchive {
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int END_SIZE = 22;
+    private static final int ZIP64_END_SIZE = 56;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+    private static final int FLAG_UTF8 = 0x0800;
+    private static final int VERSION = 20;
+    private static final int VERSION_ZIP64 = 45;
+    private static final long MAX_32 = 0xFFFFFFFFL;
+    private static final int MAX_16 = 0xFFFF;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final SubmissionStorage storage;
+    private final String key;
+    private final ReentrantLock threadLock = new ReentrantLock();
+    // By entry name, in file order
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private long centralDirectoryOffset;
+    private byte[] centralDirectory;
+    private boolean loaded;
+
+    ExportArchive(SubmissionStorage storage, String key) {
+        this.storage = storage;
+        this.key = key;
+    }
+
+    /**
+     * Locks the archive against other threads, and against other nodes through a lock file next to it. Waits until
+     * the lock is free. Must be closed.
+     */
+    Lock lock() throws IOException {
+        this.threadLock.lock();
+        return lockFile(true);
+    }
+
+    /**
+     * Like {@link #lock()}, without waiting.
+     *
+     * @return the lock, or {@code null} if another thread or node holds it
+     */
+    Lock tryLock() throws IOException {
+        if (!this.threadLock.tryLock()) {
+            return null;
+        }
+        return lockFile(false);
+    }
+
+    private Lock lockFile(boolean wait) throws IOException {
+        SeekableByteChannel channel = null;
+        try {
+            channel = this.storage.openChannel(lockKey(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            if (channel instanceof FileChannel fileChannel && (wait ? fileChannel.lock() : fileChannel.tryLock()) == null) {
+                channel.close();
+                this.threadLock.unlock();
+                return null;
+            }
+            // Another node may have changed the file since it was last read here
+            forget();
+            return new Lock(channel);
+        } catch (IOException | RuntimeException e) {
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+            } finally {
+                this.threadLock.unlock();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return whether the archive holds exactly the given submission files that exist, so that {@link #update} would
+     * not change it
+     */
+    boolean isCurrent(Collection<String> fileNames) throws IOException {
+        load();
+        Set<String> wanted = new HashSet<>();
+        for (String fileName : fileNames) {
+            String name = SubmissionStorage.fileName(fileName);
+            wanted.add(name);
+            if (!this.entries.containsKey(name) && this.storage.exists(fileName)) {
+                return false;
+            }
+        }
+        return wanted.containsAll(this.entries.keySet());
+    }
+
+    /**
+     * Brings the archive in line with the given submission files: entries of files that are not in the list anymore
+     * are removed by rewriting the archive, files that are not in the archive yet are appended. Files that do not
+     * exist are skipped.
+     *
+     * @return whether the archive changed
+     */
+    boolean update(Collection<String> fileNames) throws IOException {
+        load();
+        Set<String> wanted = new HashSet<>();
+        List<String> missing = new ArrayList<>();
+        for (String fileName : fileNames) {
+            String name = SubmissionStorage.fileName(fileName);
+            wanted.add(name);
+            if (!this.entries.containsKey(name) && this.storage.exists(fileName)) {
+                missing.add(fileName);
+            }
+        }
+        boolean compact = !wanted.containsAll(this.entries.keySet());
+        if (compact) {
+            compact(wanted);
+        }
+        if (!missing.isEmpty()) {
+            append(missing);
+        }
+        return compact || !missing.isEmpty();
+    }
+
+    /**
+     * Opens the archive as it is now. Must be closed.
+     */
+    Snapshot snapshot() throws IOException {
+        load();
+        if (!this.storage.exists(this.key)) {
+            // Nothing was added yet, write an archive without entries
+            append(List.of());
+        }
+        if (this.centralDirectory == null) {
+            this.centralDirectory = centralDirectory(this.entries.values(), this.centralDirectoryOffset);
+        }
+        return new Snapshot(this.storage.openChannel(this.key, StandardOpenOption.READ), this.centralDirectoryOffset, this.centralDirectory);
+    }
+
+    /**
+     * Deletes the archive. The lock file stays: deleting it while another node waits for it would let a third node
+     * lock a new file at the same time.
+     */
+    void delete() throws IOException {
+        this.storage.delete(this.key);
+        this.storage.delete(temporaryKey());
+        forget();
+        this.loaded = true;
+    }
+
+    private void forget() {
+        this.entries.clear();
+        this.centralDirectoryOffset = 0;
+        this.centralDirectory = null;
+        this.loaded = false;
+    }
+
+    /**
+     * Reads the entries from the central directory of the file, if there is one. A file that cannot be read, e.g.
+     * because the application stopped during an append, is deleted and built again.
+     */
+    private void load() throws IOException {
+        if (this.loaded) {
+            return;
+        }
+        this.loaded = true;
+        if (!this.storage.exists(this.key)) {
+            return;
+        }
+        try (SeekableByteChannel channel = this.storage.openChannel(this.key, StandardOpenOption.READ)) {
+            readCentralDirectory(channel);
+        } catch (ZipException | RuntimeException e) {
+            delete();
+        }
+    }
+
+    private void readCentralDirectory(SeekableByteChannel channel) throws IOException {
+        long fileSize = channel.size();
+        int tailSize = (int) Math.min(fileSize, END_SIZE + MAX_16);
+        ByteBuffer tail = read(channel, fileSize - tailSize, tailSize);
+        int end = -1;
+        for (int i = tailSize - END_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == END_SIGNATURE) {
+                end = i;
+                break;
+            }
+        }
+        if (end < 0) {
+            throw new ZipException("End of central directory not found");
+        }
+        long count = tail.getShort(end + 10) & MAX_16;
+        long size = tail.getInt(end + 12) & MAX_32;
+        long offset = tail.getInt(end + 16) & MAX_32;
+        if (count == MAX_16 || size == MAX_32 || offset == MAX_32) {
+            int locator = end - ZIP64_LOCATOR_SIZE;
+            if (locator < 0 || tail.getInt(locator) != ZIP64_LOCATOR_SIGNATURE) {
+                throw new ZipException("ZIP64 end of central directory locator not found");
+            }
+            ByteBuffer zip64End = read(channel, tail.getLong(locator + 8), ZIP64_END_SIZE);
+            if (zip64End.getInt(0) != ZIP64_END_SIGNATURE) {
+                throw new ZipException("ZIP64 end of central directory not found");
+            }
+            count = zip64End.getLong(32);
+            size = zip64End.getLong(40);
+            offset = zip64End.getLong(48);
+        }
+
+        ByteBuffer directory = read(channel, offset, Math.toIntExact(size));
+        int position = 0;
+        for (long i = 0; i < count; i++) {
+            if (directory.getInt(position) != CENTRAL_HEADER_SIGNATURE) {
+                throw new ZipException("Bad central directory entry");
+            }
+            int dosTime = directory.getShort(position + 12) & MAX_16;
+            int dosDate = directory.getShort(position + 14) & MAX_16;
+            long crc = directory.getInt(position + 16) & MAX_32;
+            long entrySize = directory.getInt(position + 24) & MAX_32;
+            int nameLength = directory.getShort(position + 28) & MAX_16;
+            int extraLength = directory.getShort(position + 30) & MAX_16;
+            int commentLength = directory.getShort(position + 32) & MAX_16;
+            long localOffset = directory.getInt(position + 42) & MAX_32;
+            byte[] name = new byte[nameLength];
+            directory.get(position + CENTRAL_HEADER_SIZE, name);
+
+            int extra = position + CENTRAL_HEADER_SIZE + nameLength;
+            int extraEnd = extra + extraLength;
+            while (extra + 4 <= extraEnd) {
+                int id = directory.getShort(extra) & MAX_16;
+                int length = directory.getShort(extra + 2) & MAX_16;
+                if (id == ZIP64_EXTRA_ID) {
+                    int field = extra + 4;
+                    if (entrySize == MAX_32) {
+                        entrySize = directory.getLong(field);
+                        // Compressed size, the same for STORED entries
+                        field += 16;
+                    }
+                    if (localOffset == MAX_32) {
+                        localOffset = directory.getLong(field);
+                    }
+                }
+                extra += 4 + length;
+            }
+
+            Entry entry = new Entry(name, crc, entrySize, dosTime, dosDate, localOffset);
+            this.entries.put(entry.nameString(), entry);
+            position = extraEnd + commentLength;
+        }
+        this.centralDirectoryOffset = offset;
+    }
+
+    /**
+     * Writes the files over the central directory, then writes the new central directory after them. The entries are
+     * only taken over once the central directory is written; if anything fails the file no longer matches them, so it
+     * is deleted and the next update builds it again.
+     */
+    private void append(List<String> fileNames) throws IOException {
+        Map<String, Entry> appended = new LinkedHashMap<>(this.entries);
+        long offset = this.centralDirectoryOffset;
+        byte[] directory;
+        try (SeekableByteChannel channel = this.storage.openChannel(this.key, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.truncate(offset);
+            channel.position(offset);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            for (String fileName : fileNames) {
+                long lastModified = this.storage.lastModified(fileName).toMillis();
+                Entry entry = new Entry(SubmissionStorage.fileName(fileName).getBytes(StandardCharsets.UTF_8),
+                        crc32(fileName, buffer), this.storage.size(fileName), dosTime(lastModified), dosDate(lastModified), offset);
+                writeFully(channel, ByteBuffer.wrap(entry.localHeader()));
+                try (SeekableByteChannel source = this.storage.openChannel(fileName, StandardOpenOption.READ)) {
+                    copy(source, 0, entry.size(), channel, buffer);
+                }
+                appended.put(entry.nameString(), entry);
+                offset += entry.localRecordSize();
+            }
+            directory = centralDirectory(appended.values(), offset);
+            writeFully(channel, ByteBuffer.wrap(directory));
+        } catch (IOException | RuntimeException e) {
+            delete();
+            throw e;
+        }
+        this.entries.clear();
+        this.entries.putAll(appended);
+        this.centralDirectoryOffset = offset;
+        this.centralDirectory = directory;
+    }
+
+    /**
+     * Copies the entries that are still wanted into a new file and moves it over the archive.
+     */
+    private void compact(Set<String> wanted) throws IOException {
+        String temporaryKey = temporaryKey();
+        Map<String, Entry> kept = new LinkedHashMap<>();
+        long offset = 0;
+        byte[] buffer = new byte[BUFFER_SIZE];
+        byte[] directory;
+        try {
+            this.storage.delete(temporaryKey);
+            try (SeekableByteChannel source = this.storage.openChannel(this.key, StandardOpenOption.READ);
+                 SeekableByteChannel target = this.storage.openChannel(temporaryKey, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                for (Entry entry : this.entries.values()) {
+                    if (!wanted.contains(entry.nameString())) {
+                        continue;
+                    }
+                    ByteBuffer header = read(source, entry.localOffset(), LOCAL_HEADER_SIZE);
+                    if (header.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+                        throw new ZipException("Bad local header for " + entry.nameString());
+                    }
+                    long recordSize = LOCAL_HEADER_SIZE + (header.getShort(26) & MAX_16) + (header.getShort(28) & MAX_16) + entry.size();
+                    copy(source, entry.localOffset(), recordSize, target, buffer);
+                    kept.put(entry.nameString(), entry.movedTo(offset));
+                    offset += recordSize;
+                }
+                directory = centralDirectory(kept.values(), offset);
+                writeFully(target, ByteBuffer.wrap(directory));
+            }
+            this.storage.move(temporaryKey, this.key);
+        } catch (IOException | RuntimeException e) {
+            delete();
+            throw e;
+        }
+        this.entries.clear();
+        this.entries.putAll(kept);
+        this.centralDirectoryOffset = offset;
+        this.centralDirectory = directory;
+    }
+
+    /**
+     * @return the central directory and end records for the entries, with the central directory at the offset
+     */
+    private static byte[] centralDirectory(Collection<Entry> entries, long offset) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (Entry entry : entries) {
+            out.writeBytes(entry.centralHeader());
+        }
+        long size = out.size();
+        int count = entries.size();
+        boolean zip64 = count >= MAX_16 || size >= MAX_32 || offset >= MAX_32;
+        if (zip64) {
+            out.writeBytes(buffer(ZIP64_END_SIZE + ZIP64_LOCATOR_SIZE)
+                    .putInt(ZIP64_END_SIGNATURE).putLong(ZIP64_END_SIZE - 12).putShort((short) VERSION_ZIP64).putShort((short) VERSION_ZIP64)
+                    .putInt(0).putInt(0).putLong(count).putLong(count).putLong(size).putLong(offset)
+                    .putInt(ZIP64_LOCATOR_SIGNATURE).putInt(0).putLong(offset + size).putInt(1)
+                    .array());
+        }
+        out.writeBytes(buffer(END_SIZE)
+                .putInt(END_SIGNATURE).putShort((short) 0).putShort((short) 0)
+                .putShort((short) (zip64 ? MAX_16 : count)).putShort((short) (zip64 ? MAX_16 : count))
+                .putInt((int) (zip64 ? MAX_32 : size)).putInt((int) (zip64 ? MAX_32 : offset)).putShort((short) 0)
+                .array());
+        return out.toByteArray();
+    }
+
+    private String temporaryKey() {
+        return this.key + ".tmp";
+    }
+
+    private String lockKey() {
+        return this.key + ".lock";
+    }
+
+    private long crc32(String fileName, byte[] buffer) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream in = this.storage.openInputStream(fileName)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Copies a range of one channel to the current position of another, without the heap if both are files.
+     */
+    private static void copy(SeekableByteChannel source, long position, long length, WritableByteChannel target, byte[] buffer) throws IOException {
+        long end = position + length;
+        if (source instanceof FileChannel fileChannel) {
+            while (position < end) {
+                long transferred = fileChannel.transferTo(position, end - position, target);
+                if (transferred <= 0) {
+                    throw new ZipException("File shrank while it was added to the archive");
+                }
+                position += transferred;
+            }
+            return;
+        }
+        source.position(position);
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+        while (position < end) {
+            byteBuffer.clear().limit((int) Math.min(buffer.length, end - position));
+            int read = source.read(byteBuffer);
+            if (read == -1) {
+                throw new ZipException("File shrank while it was added to the archive");
+            }
+            byteBuffer.flip();
+            writeFully(target, byteBuffer);
+            position += read;
+        }
+    }
+
+    private static ByteBuffer read(SeekableByteChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = buffer(length);
+        channel.position(position);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) == -1) {
+                throw new ZipException("Unexpected end of archive");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static ByteBuffer buffer(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static int dosTime(long millis) {
+        LocalDateTime time = dosDateTime(millis);
+        return time.getHour() << 11 | time.getMinute() << 5 | time.getSecond() >> 1;
+    }
+
+    private static int dosDate(long millis) {
+        LocalDateTime time = dosDateTime(millis);
+        return (time.getYear() - 1980) << 9 | time.getMonthValue() << 5 | time.getDayOfMonth();
+    }
+
+    private static LocalDateTime dosDateTime(long millis) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+        return time.getYear() < 1980 ? LocalDateTime.of(1980, 1, 1, 0, 0) : time;
+    }
+
+    private record Entry(byte[] name, long crc, long size, int dosTime, int dosDate, long localOffset) {
+        String nameString() {
+            return new String(this.name, StandardCharsets.UTF_8);
+        }
+
+        Entry movedTo(long offset) {
+            return new Entry(this.name, this.crc, this.size, this.dosTime, this.dosDate, offset);
+        }
+
+        boolean isZip64() {
+            return this.size >= MAX_32;
+        }
+
+        long localRecordSize() {
+            return LOCAL_HEADER_SIZE + this.name.length + (isZip64() ? 20 : 0) + this.size;
+        }
+
+        byte[] localHeader() {
+            ByteBuffer header = buffer(LOCAL_HEADER_SIZE + this.name.length + (isZip64() ? 20 : 0))
+                    .putInt(LOCAL_HEADER_SIGNATURE).putShort((short) (isZip64() ? VERSION_ZIP64 : VERSION)).putShort((short) FLAG_UTF8)
+                    .putShort((short) 0).putShort((short) this.dosTime).putShort((short) this.dosDate).putInt((int) this.crc)
+                    .putInt((int) (isZip64() ? MAX_32 : this.size)).putInt((int) (isZip64() ? MAX_32 : this.size))
+                    .putShort((short) this.name.length).putShort((short) (isZip64() ? 20 : 0)).put(this.name);
+            if (isZip64()) {
+                header.putShort((short) ZIP64_EXTRA_ID).putShort((short) 16).putLong(this.size).putLong(this.size);
+            }
+            return header.array();
+        }
+
+        byte[] centralHeader() {
+            boolean zip64Offset = this.localOffset >= MAX_32;
+            int extraLength = isZip64() || zip64Offset ? 4 + (isZip64() ? 16 : 0) + (zip64Offset ? 8 : 0) : 0;
+            int version = isZip64() || zip64Offset ? VERSION_ZIP64 : VERSION;
+            ByteBuffer header = buffer(CENTRAL_HEADER_SIZE + this.name.length + extraLength)
+                    .putInt(CENTRAL_HEADER_SIGNATURE).putShort((short) version).putShort((short) version).putShort((short) FLAG_UTF8)
+                    .putShort((short) 0).putShort((short) this.dosTime).putShort((short) this.dosDate).putInt((int) this.crc)
+                    .putInt((int) (isZip64() ? MAX_32 : this.size)).putInt((int) (isZip64() ? MAX_32 : this.size))
+                    .putShort((short) this.name.length).putShort((short) extraLength).putShort((short) 0)
+                    .putShort((short) 0).putShort((short) 0).putInt(0)
+                    .putInt((int) (zip64Offset ? MAX_32 : this.localOffset)).put(this.name);
+            if (extraLength > 0) {
+                header.putShort((short) ZIP64_EXTRA_ID).putShort((short) (extraLength - 4));
+                if (isZip64()) {
+                    header.putLong(this.size).putLong(this.size);
+                }
+                if (zip64Offset) {
+                    header.putLong(this.localOffset);
+                }
+            }
+            return header.array();
+        }
+    }
+
+    /**
+     * Held while working on the archive. Closing the lock file releases the file lock.
+     */
+    final class Lock implements AutoCloseable {
+        private final SeekableByteChannel channel;
+
+        private Lock(SeekableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                this.channel.close();
+            } finally {
+                threadLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * The archive as it was when the snapshot was taken: the entries from the file, followed by the central directory
+     * of that time.
+     */
+    public static final class Snapshot implements AutoCloseable {
+        private final SeekableByteChannel channel;
+        private final long entriesLength;
+        private final byte[] centralDirectory;
+
+        private Snapshot(SeekableByteChannel channel, long entriesLength, byte[] centralDirectory) {
+            this.channel = channel;
+            this.entriesLength = entriesLength;
+            this.centralDirectory = centralDirectory;
+        }
+
+        public long length() {
+            return this.entriesLength + this.centralDirectory.length;
+        }
+
+        /**
+         * Writes the whole archive. The output stream is not closed.
+         */
+        public void writeTo(OutputStream outputStream) throws IOException {
+            copy(this.channel, 0, this.entriesLength, Channels.newChannel(outputStream), new byte[BUFFER_SIZE]);
+            outputStream.write(this.centralDirectory);
+            outputStream.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.channel.close();
+        }
+    }
+}
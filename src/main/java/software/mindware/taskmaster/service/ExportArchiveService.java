@@ -0,0 +1,129 @@
+package software.mindware.taskmaster.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import software.mindware.taskmaster.config.ReplicaRouting;
+import software.mindware.taskmaster.repository.SubmissionRepository;
+import software.mindware.taskmaster.storage.SubmissionStorage;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps a pre-built ZIP export per challenge under {@code exports/} in the submission storage, so downloading the
+ * submissions of a challenge is a plain file read no matter how often it happens.
+ * <p>
+ * New submissions are appended in the background as they arrive; deleted submissions make the next update rewrite the
+ * archive without them. Updates lock the archive with a file lock, so nodes that share the storage take turns. A
+ * download only uses the archive if it has all submissions of the challenge and no update is running; otherwise the
+ * caller builds the ZIP itself, so a download never waits for an archive to be built.
+ */
+@Service
+public class ExportArchiveService {
+    private static final Logger log = LoggerFactory.getLogger(ExportArchiveService.class);
+
+    private final SubmissionRepository submissionRepository;
+    private final SubmissionStorage submissionStorage;
+    private final boolean enabled;
+    private final ExecutorService executor;
+
+    private final Map<Long, ExportArchive> archives = new ConcurrentHashMap<>();
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+    public ExportArchiveService(SubmissionRepository submissionRepository, SubmissionStorage submissionStorage,
+                                @Value("${export.archive.enabled:false}") boolean enabled) {
+        this.submissionRepository = submissionRepository;
+        this.submissionStorage = submissionStorage;
+        this.enabled = enabled;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "export-archive");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * Queues an update of the challenge's archive, after its submissions changed. Calls made before the update starts
+     * are handled by that one update.
+     */
+    public void scheduleUpdate(long challengeId) {
+        if (!this.enabled || !this.pending.add(challengeId)) {
+            return;
+        }
+        this.executor.execute(() -> {
+            this.pending.remove(challengeId);
+            ExportArchive archive = archive(challengeId);
+            // Submissions missing on a lagging replica would make the update rewrite the archive without them
+            try (ReplicaRouting.Scope scope = ReplicaRouting.primaryOnly();
+                 ExportArchive.Lock lock = archive.lock()) {
+                archive.update(this.submissionRepository.findFileNamesByChallengeId(challengeId));
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not update the export archive of challenge {}", challengeId, e);
+            }
+        });
+    }
+
+    /**
+     * Opens the challenge's archive if it is up to date. The snapshot must be closed.
+     *
+     * @return the snapshot, or empty if the archive misses submissions or is being updated, here or on another node.
+     * An update is queued then
+     */
+    public Optional<ExportArchive.Snapshot> openIfCurrent(long challengeId) throws IOException {
+        ExportArchive archive = archive(challengeId);
+        List<String> fileNames;
+        try (ReplicaRouting.Scope scope = ReplicaRouting.primaryOnly()) {
+            fileNames = this.submissionRepository.findFileNamesByChallengeId(challengeId);
+        }
+        try (ExportArchive.Lock lock = archive.tryLock()) {
+            if (lock != null && archive.isCurrent(fileNames)) {
+                return Optional.of(archive.snapshot());
+            }
+        }
+        scheduleUpdate(challengeId);
+        return Optional.empty();
+    }
+
+    /**
+     * Deletes the archive of a deleted challenge, after any updates that are still queued for it.
+     */
+    public void delete(long challengeId) {
+        if (!this.enabled) {
+            return;
+        }
+        this.executor.execute(() -> {
+            ExportArchive archive = archive(challengeId);
+            try (ExportArchive.Lock lock = archive.lock()) {
+                archive.delete();
+            } catch (IOException e) {
+                log.warn("Could not delete the export archive of challenge {}", challengeId, e);
+            } finally {
+                this.archives.remove(challengeId);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.executor.shutdown();
+    }
+
+    private ExportArchive archive(long challengeId) {
+        return this.archives.computeIfAbsent(challengeId,
+                id -> new ExportArchive(this.submissionStorage, "exports/challenge_" + id + ".zip"));
+    }
+}
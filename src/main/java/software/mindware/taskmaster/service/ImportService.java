@@ -0,0 +1,220 @@
+package software.mindware.taskmaster.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import software.mindware.taskmaster.dto.ChallengeImportRow;
+import software.mindware.taskmaster.dto.ImportResult;
+import software.mindware.taskmaster.dto.ImportResult.RowError;
+import software.mindware.taskmaster.dto.TeamImportRow;
+import software.mindware.taskmaster.repository.TeamRepository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.stream.IntStream;
+
+/**
+ * Creates teams and challenges in bulk, e.g. the whole roster and schedule before an event. Rows are validated first;
+ * if any row is invalid nothing is imported. Valid imports are written in one transaction with batched JDBC inserts,
+ * since the IDENTITY ids of the entities keep Hibernate from batching.
+ */
+@Service
+public class ImportService {
+    private static final int MAX_LENGTH = 255;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TeamRepository teamRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ChallengeTimeline challengeTimeline;
+    private final SubmissionFeed submissionFeed;
+    private final int batchSize;
+
+    public ImportService(JdbcTemplate jdbcTemplate, TeamRepository teamRepository, TransactionTemplate transactionTemplate,
+                         ChallengeTimeline challengeTimeline, SubmissionFeed submissionFeed,
+                         @Value("${import.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.teamRepository = teamRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.challengeTimeline = challengeTimeline;
+        this.submissionFeed = submissionFeed;
+        this.batchSize = batchSize;
+    }
+
+    public ImportResult importTeams(List<TeamImportRow> rows) {
+        List<RowError> errors = new ArrayList<>();
+        Map<String, Integer> rowByName = new HashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            TeamImportRow row = rows.get(i);
+            int rowNumber = i + 1;
+            if (checkRequired(errors, rowNumber, "teamName", row.getTeamName())) {
+                Integer firstRow = rowByName.putIfAbsent(row.getTeamName(), rowNumber);
+                if (firstRow != null) {
+                    errors.add(new RowError(rowNumber, "teamName", "Same name as row " + firstRow));
+                }
+            }
+            checkRequired(errors, rowNumber, "code", row.getCode());
+        }
+        if (!rowByName.isEmpty()) {
+            for (String existing : this.teamRepository.findTeamNamesIn(rowByName.keySet())) {
+                errors.add(new RowError(rowByName.get(existing), "teamName", "A team with this name already exists"));
+            }
+        }
+        if (!errors.isEmpty()) {
+            return new ImportResult(0, errors);
+        }
+
+        this.transactionTemplate.executeWithoutResult(status -> this.jdbcTemplate.batchUpdate(
+                "insert into team (team_name, code, token_epoch) values (?, ?, 0)", rows, this.batchSize,
+                (statement, row) -> {
+                    statement.setString(1, row.getTeamName());
+                    statement.setString(2, row.getCode());
+                }));
+        return new ImportResult(rows.size(), List.of());
+    }
+
+    public ImportResult importChallenges(List<ChallengeImportRow> rows) {
+        List<RowError> errors = new ArrayList<>();
+        List<Instant> startDates = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            ChallengeImportRow row = rows.get(i);
+            int rowNumber = i + 1;
+            checkRequired(errors, rowNumber, "title", row.getTitle());
+            if (row.getDescription() != null && row.getDescription().length() > MAX_LENGTH) {
+                errors.add(new RowError(rowNumber, "description", "Longer than " + MAX_LENGTH + " characters"));
+            }
+            Instant startDate = null;
+            if (row.getStartDate() == null || row.getStartDate().isBlank()) {
+                errors.add(new RowError(rowNumber, "startDate", "Required"));
+            } else {
+                try {
+                    startDate = Instant.parse(row.getStartDate().trim());
+                } catch (DateTimeParseException e) {
+                    errors.add(new RowError(rowNumber, "startDate", "Not a date like 2025-06-03T15:00:00Z"));
+                }
+            }
+            startDates.add(startDate);
+        }
+        if (!errors.isEmpty()) {
+            return new ImportResult(0, errors);
+        }
+
+        // Bound like Hibernate binds Instant on MySQL: as a timestamp in UTC
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        this.transactionTemplate.executeWithoutResult(status -> {
+            List<Integer> indexes = IntStream.range(0, rows.size()).boxed().toList();
+            this.jdbcTemplate.batchUpdate(
+                    "insert into challenge (title, description, start_date) values (?, ?, ?)", indexes, this.batchSize,
+                    (statement, index) -> {
+                        statement.setString(1, rows.get(index).getTitle());
+                        statement.setString(2, rows.get(index).getDescription());
+                        statement.setTimestamp(3, Timestamp.from(startDates.get(index)), utc);
+                    });
+            this.submissionFeed.challengeChanged(null, "imported");
+        });
+        this.challengeTimeline.invalidate();
+        return new ImportResult(rows.size(), List.of());
+    }
+
+    /**
+     * Reads teams from CSV with a header line naming the columns {@code teamName} and {@code code}.
+     */
+    public List<TeamImportRow> parseTeamsCsv(String csv) {
+        return parseCsv(csv).stream()
+                .map(record -> new TeamImportRow(record.get("teamName"), record.get("code")))
+                .toList();
+    }
+
+    /**
+     * Reads challenges from CSV with a header line naming the columns {@code title}, {@code description} and
+     * {@code startDate}.
+     */
+    public List<ChallengeImportRow> parseChallengesCsv(String csv) {
+        return parseCsv(csv).stream()
+                .map(record -> new ChallengeImportRow(record.get("title"), record.get("description"), record.get("startDate")))
+                .toList();
+    }
+
+    /**
+     * @return false if the value is missing or too long
+     */
+    private static boolean checkRequired(List<RowError> errors, int row, String field, String value) {
+        if (value == null || value.isBlank()) {
+            errors.add(new RowError(row, field, "Required"));
+            return false;
+        }
+        if (value.length() > MAX_LENGTH) {
+            errors.add(new RowError(row, field, "Longer than " + MAX_LENGTH + " characters"));
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Parses RFC 4180 CSV: fields may be quoted, quotes inside quoted fields are doubled. Blank lines are skipped.
+     *
+     * @return one map per record, from header name to value
+     */
+    static List<Map<String, String>> parseCsv(String csv) {
+        List<List<String>> records = new ArrayList<>();
+        List<String> record = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < csv.length(); i++) {
+            char c = csv.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < csv.length() && csv.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                record.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r' && i + 1 < csv.length() && csv.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                endRecord(records, record, field);
+                record = new ArrayList<>();
+            } else {
+                field.append(c);
+            }
+        }
+        endRecord(records, record, field);
+
+        List<Map<String, String>> result = new ArrayList<>();
+        if (records.isEmpty()) {
+            return result;
+        }
+        List<String> header = records.get(0).stream().map(String::trim).toList();
+        for (List<String> values : records.subList(1, records.size())) {
+            Map<String, String> byName = new HashMap<>();
+            for (int column = 0; column < header.size() && column < values.size(); column++) {
+                byName.put(header.get(column), values.get(column));
+            }
+            result.add(byName);
+        }
+        return result;
+    }
+
+    private static void endRecord(List<List<String>> records, List<String> record, StringBuilder field) {
+        record.add(field.toString());
+        field.setLength(0);
+        if (record.size() > 1 || !record.get(0).isBlank()) {
+            records.add(record);
+        }
+    }
+}
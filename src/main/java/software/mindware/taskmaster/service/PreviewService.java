@@ -0,0 +1,232 @@
+package software.mindware.taskmaster.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import software.mindware.taskmaster.storage.SubmissionStorage;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates lightweight previews of submissions in the background so judges do not have to download the originals.
+ * Images get a downscaled JPEG next to the original. The JDK cannot decode video, so videos get a small JSON file with
+ * their type, size and, for MP4/QuickTime, their duration.
+ */
+@Service
+public class PreviewService {
+    private static final Logger log = LoggerFactory.getLogger(PreviewService.class);
+
+    public static final String PREVIEW_SUFFIX = ".preview.jpg";
+    public static final String METADATA_SUFFIX = ".meta.json";
+
+    private final SubmissionStorage submissionStorage;
+    private final ThreadPoolExecutor executor;
+    private final int maxDimension;
+
+    public PreviewService(SubmissionStorage submissionStorage,
+                          @Value("${preview.workers:2}") int workers,
+                          @Value("${preview.queue-size:200}") int queueSize,
+                          @Value("${preview.max-dimension:480}") int maxDimension) {
+        this.submissionStorage = submissionStorage;
+        this.maxDimension = maxDimension;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize), runnable -> {
+            Thread thread = new Thread(runnable, "preview-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        ImageIO.setUseCache(false);
+    }
+
+    /**
+     * Queues preview generation for a stored submission file. Previews are best effort: if the queue is full the
+     * submission simply has none.
+     */
+    public void schedule(String fileName) {
+        try {
+            this.executor.execute(() -> generate(fileName));
+        } catch (RejectedExecutionException e) {
+            log.warn("Preview queue is full, skipping preview for {}", fileName);
+        }
+    }
+
+    /**
+     * @return the storage key of the JPEG preview if it exists, otherwise of the metadata file if that exists
+     */
+    public Optional<String> findPreview(String fileName) {
+        String previewKey = fileName + PREVIEW_SUFFIX;
+        if (this.submissionStorage.exists(previewKey)) {
+            return Optional.of(previewKey);
+        }
+        String metadataKey = fileName + METADATA_SUFFIX;
+        if (this.submissionStorage.exists(metadataKey)) {
+            return Optional.of(metadataKey);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Deletes the previews of a submission file, if any.
+     */
+    public void deletePreviews(String fileName) throws IOException {
+        this.submissionStorage.delete(fileName + PREVIEW_SUFFIX);
+        this.submissionStorage.delete(fileName + METADATA_SUFFIX);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    private void generate(String fileName) {
+        try {
+            byte[] header;
+            try (InputStream in = this.submissionStorage.openInputStream(fileName)) {
+                header = in.readNBytes(ContentSniffer.HEADER_SIZE);
+            }
+            Optional<String> contentType = ContentSniffer.detect(header, header.length);
+            if (contentType.isEmpty()) {
+                return;
+            }
+            if (contentType.get().startsWith("image/") && writeImagePreview(fileName)) {
+                return;
+            }
+            writeMetadata(fileName, contentType.get());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not generate preview for {}", fileName, e);
+        }
+    }
+
+    /**
+     * @return false if no ImageIO reader supports the format
+     */
+    private boolean writeImagePreview(String fileName) throws IOException {
+        BufferedImage source;
+        try (InputStream in = this.submissionStorage.openInputStream(fileName);
+             ImageInputStream imageIn = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageIn);
+            if (!readers.hasNext()) {
+                return false;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageIn, true, true);
+                // Subsample while decoding so large photos never have to fit in memory at full resolution
+                int largestSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+                int subsampling = Math.max(1, largestSide / (this.maxDimension * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                source = reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        double scale = Math.min(1.0, (double) this.maxDimension / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        BufferedImage preview = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = preview.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream imageOut = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(imageOut);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(0.8f);
+            writer.write(null, new IIOImage(preview, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        store(fileName + PREVIEW_SUFFIX, out.toByteArray());
+        return true;
+    }
+
+    private void writeMetadata(String fileName, String contentType) throws IOException {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"contentType\": \"").append(contentType).append("\"");
+        json.append(", \"size\": ").append(this.submissionStorage.size(fileName));
+        if (contentType.equals("video/mp4") || contentType.equals("video/quicktime")) {
+            Optional<Double> duration = readMp4Duration(fileName);
+            duration.ifPresent(seconds -> json.append(", \"durationSeconds\": ").append(String.format(Locale.ROOT, "%.3f", seconds)));
+        }
+        json.append("}");
+        store(fileName + METADATA_SUFFIX, json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads the duration from the {@code mvhd} box inside the top-level {@code moov} box, skipping over other boxes
+     * such as the media data without reading them.
+     */
+    private Optional<Double> readMp4Duration(String fileName) throws IOException {
+        try (DataInputStream in = new DataInputStream(this.submissionStorage.openInputStream(fileName))) {
+            boolean insideMoov = false;
+            while (true) {
+                long size = in.readInt() & 0xFFFFFFFFL;
+                String type = new String(in.readNBytes(4), StandardCharsets.US_ASCII);
+                long headerSize = 8;
+                if (size == 1) {
+                    size = in.readLong();
+                    headerSize = 16;
+                }
+                if (type.equals("moov") && !insideMoov) {
+                    insideMoov = true;
+                    continue;
+                }
+                if (type.equals("mvhd") && insideMoov) {
+                    int version = in.readUnsignedByte();
+                    in.skipNBytes(3 + (version == 1 ? 16 : 8));
+                    long timescale = in.readInt() & 0xFFFFFFFFL;
+                    long duration = version == 1 ? in.readLong() : in.readInt() & 0xFFFFFFFFL;
+                    return timescale == 0 ? Optional.empty() : Optional.of((double) duration / timescale);
+                }
+                if (size < headerSize) {
+                    return Optional.empty();
+                }
+                in.skipNBytes(size - headerSize);
+            }
+        } catch (EOFException e) {
+            return Optional.empty();
+        }
+    }
+
+    private void store(String key, byte[] content) throws IOException {
+        this.submissionStorage.delete(key);
+        this.submissionStorage.write(key, new ByteArrayInputStream(content));
+    }
+}
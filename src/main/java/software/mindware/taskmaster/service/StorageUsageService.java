@@ -0,0 +1,182 @@
+package software.mindware.taskmaster.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import software.mindware.taskmaster.dto.StorageUsage;
+import software.mindware.taskmaster.dto.StorageUsage.UsageEntry;
+import software.mindware.taskmaster.model.Submission;
+import software.mindware.taskmaster.repository.SubmissionRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Keeps the bytes and files used per team and per challenge in counter tables, so usage and quotas are answered
+ * without walking {@code upload.dir} or summing over submissions. The counters change in the same transaction as the
+ * submission rows they count.
+ * <p>
+ * Two byte quotas apply: {@code upload.quota.team} for all submissions of a team and {@code upload.quota.challenge}
+ * for all submissions to a challenge. Zero disables a quota.
+ */
+@Service
+public class StorageUsageService {
+    private final JdbcTemplate jdbcTemplate;
+    private final SubmissionRepository submissionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long teamQuota;
+    private final long challengeQuota;
+
+    public StorageUsageService(JdbcTemplate jdbcTemplate, SubmissionRepository submissionRepository,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${upload.quota.team:0}") DataSize teamQuota,
+                               @Value("${upload.quota.challenge:0}") DataSize challengeQuota) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.submissionRepository = submissionRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.teamQuota = teamQuota.toBytes();
+        this.challengeQuota = challengeQuota.toBytes();
+    }
+
+    /**
+     * Checks whether a file of the given size still fits the quotas, before it is uploaded. Concurrent uploads can
+     * still take a team or challenge over its quota in between; {@link #save} has the final say.
+     *
+     * @param teamId null if the team is not known yet, only the challenge quota is checked then
+     */
+    public boolean fitsQuota(Long teamId, long challengeId, long bytes) {
+        return (teamId == null || fits(Counter.TEAM, teamId, bytes, this.teamQuota))
+                && fits(Counter.CHALLENGE, challengeId, bytes, this.challengeQuota);
+    }
+
+    /**
+     * Saves a new submission, whose size must be set, and adds it to the counters.
+     *
+     * @return the saved submission, or empty if it would take its team or challenge over a quota. Nothing is saved
+     * then and the caller should delete the file
+     */
+    public Optional<Submission> save(Submission submission) {
+        long teamId = submission.getTeam().getId();
+        long challengeId = submission.getChallenge().getId();
+        return this.transactionTemplate.execute(status -> {
+            Submission saved = this.submissionRepository.save(submission);
+            // Always in this order, so concurrent uploads lock the counter rows in the same order
+            add(Counter.TEAM, teamId, submission.getSize(), 1);
+            add(Counter.CHALLENGE, challengeId, submission.getSize(), 1);
+            if (!fits(Counter.TEAM, teamId, 0, this.teamQuota) || !fits(Counter.CHALLENGE, challengeId, 0, this.challengeQuota)) {
+                status.setRollbackOnly();
+                return Optional.empty();
+            }
+            return Optional.of(saved);
+        });
+    }
+
+    /**
+     * Takes the submissions of a team and/or challenge off the counters. Must be called in the transaction that
+     * deletes them, before they are deleted and before anything else reads them. The submissions are locked, so an
+     * upload that commits in the meantime can neither be deleted without being subtracted nor missed by the other
+     * reads of the transaction.
+     *
+     * @param teamId      null for all teams
+     * @param challengeId null for all challenges
+     */
+    public void subtract(Long teamId, Long challengeId) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder where = new StringBuilder("team_id is not null and challenge_id is not null");
+        if (teamId != null) {
+            where.append(" and team_id = ?");
+            args.add(teamId);
+        }
+        if (challengeId != null) {
+            where.append(" and challenge_id = ?");
+            args.add(challengeId);
+        }
+        Map<Long, long[]> byTeam = new TreeMap<>();
+        Map<Long, long[]> byChallenge = new TreeMap<>();
+        // A locking read sees the latest committed rows, like the delete that follows, where a plain select would read
+        // the transaction's snapshot
+        this.jdbcTemplate.query("select team_id, challenge_id, size from submission where " + where + " for update", resultSet -> {
+            long bytes = resultSet.getLong(3);
+            long[] team = byTeam.computeIfAbsent(resultSet.getLong(1), id -> new long[2]);
+            team[0] += bytes;
+            team[1]++;
+            long[] challenge = byChallenge.computeIfAbsent(resultSet.getLong(2), id -> new long[2]);
+            challenge[0] += bytes;
+            challenge[1]++;
+        }, args.toArray());
+        byTeam.forEach((id, usage) -> add(Counter.TEAM, id, -usage[0], -usage[1]));
+        byChallenge.forEach((id, usage) -> add(Counter.CHALLENGE, id, -usage[0], -usage[1]));
+        if (challengeId == null) {
+            this.jdbcTemplate.update("delete from team_usage where team_id = ? and files <= 0", teamId);
+        }
+        if (teamId == null) {
+            this.jdbcTemplate.update("delete from challenge_usage where challenge_id = ? and files <= 0", challengeId);
+        }
+    }
+
+    /**
+     * Records the size of an old submission that was saved without one, and adds it to the counters that already
+     * count the submission as a file.
+     */
+    public void backfillSize(long submissionId, long teamId, long challengeId, long size) {
+        this.transactionTemplate.executeWithoutResult(status -> {
+            if (this.jdbcTemplate.update("update submission set size = ? where id = ? and size is null", size, submissionId) == 1) {
+                add(Counter.TEAM, teamId, size, 0);
+                add(Counter.CHALLENGE, challengeId, size, 0);
+            }
+        });
+    }
+
+    /**
+     * Reads every counter row, so the cost grows with the number of teams and challenges, not with submissions. The
+     * response lists all of those rows anyway, and the totals are summed from the challenge rows already read. A
+     * separate total row would be updated by every upload and delete and serialize them on one row lock.
+     *
+     * @return the counters and quotas; the totals are summed over challenges, not over submissions
+     */
+    public StorageUsage getUsage() {
+        List<UsageEntry> challenges = entries(Counter.CHALLENGE);
+        List<UsageEntry> teams = entries(Counter.TEAM);
+        long bytes = challenges.stream().mapToLong(UsageEntry::getBytes).sum();
+        long files = challenges.stream().mapToLong(UsageEntry::getFiles).sum();
+        return new StorageUsage(bytes, files, this.teamQuota, this.challengeQuota, challenges, teams);
+    }
+
+    private boolean fits(Counter counter, long id, long bytes, long quota) {
+        if (quota <= 0) {
+            return true;
+        }
+        List<Long> used = this.jdbcTemplate.queryForList(
+                "select bytes from " + counter.table + " where " + counter.idColumn + " = ?", Long.class, id);
+        return (used.isEmpty() ? 0 : used.get(0)) + bytes <= quota;
+    }
+
+    private void add(Counter counter, long id, long bytes, long files) {
+        this.jdbcTemplate.update("insert into " + counter.table + " (" + counter.idColumn + ", bytes, files) values (?, ?, ?) " +
+                "on duplicate key update bytes = bytes + ?, files = files + ?", id, bytes, files, bytes, files);
+    }
+
+    private List<UsageEntry> entries(Counter counter) {
+        return this.jdbcTemplate.query(
+                "select " + counter.idColumn + ", bytes, files from " + counter.table + " order by " + counter.idColumn,
+                (resultSet, row) -> new UsageEntry(resultSet.getLong(1), resultSet.getLong(2), resultSet.getLong(3)));
+    }
+
+    private enum Counter {
+        TEAM("team_usage", "team_id"),
+        CHALLENGE("challenge_usage", "challenge_id");
+
+        final String table;
+        final String idColumn;
+
+        Counter(String table, String idColumn) {
+            this.table = table;
+            this.idColumn = idColumn;
+        }
+    }
+}
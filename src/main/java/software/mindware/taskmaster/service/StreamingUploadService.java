@@ -0,0 +1,96 @@
+package software.mindware.taskmaster.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import software.mindware.taskmaster.storage.SubmissionStorage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * Writes a raw request body to {@link SubmissionStorage} in a single pass. The body is not spooled to a temp file first, and
+ * the SHA-256 and byte count are computed while writing. The content type is taken from the first bytes of the body
+ * instead of from the client.
+ */
+@Service
+public class StreamingUploadService {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final SubmissionStorage submissionStorage;
+
+    @Value("${upload.max-size:1000MB}")
+    private DataSize maxSize;
+
+    public StreamingUploadService(SubmissionStorage submissionStorage) {
+        this.submissionStorage = submissionStorage;
+    }
+
+    /**
+     * Stores the body for the given team and challenge.
+     *
+     * @return the stored file, or empty if the body is not an image or video
+     * @throws TooLargeException if the body exceeds {@code upload.max-size}
+     * @throws IOException       if the body could not be read or written. Nothing is left on disk in either case
+     */
+    public Optional<StoredFile> store(String teamName, long challengeId, InputStream body) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int headerLength = body.readNBytes(buffer, 0, ContentSniffer.HEADER_SIZE);
+        Optional<String> contentType = ContentSniffer.detect(buffer, headerLength);
+        if (contentType.isEmpty()) {
+            return Optional.empty();
+        }
+
+        String fileName = this.submissionStorage.createKey(teamName, challengeId, ContentSniffer.extensionFor(contentType.get()));
+
+        MessageDigest digest = sha256();
+        long limit = this.maxSize.toBytes();
+        long size = 0;
+        boolean stored = false;
+        try (SeekableByteChannel channel = this.submissionStorage.openChannel(fileName, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            int read = headerLength;
+            while (read > 0) {
+                size += read;
+                if (size > limit) {
+                    throw new TooLargeException(this.maxSize);
+                }
+                digest.update(buffer, 0, read);
+                ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+                while (byteBuffer.hasRemaining()) {
+                    channel.write(byteBuffer);
+                }
+                read = body.read(buffer);
+            }
+            stored = true;
+        } finally {
+            if (!stored) {
+                this.submissionStorage.delete(fileName);
+            }
+        }
+        return Optional.of(new StoredFile(fileName, contentType.get(), size, HexFormat.of().formatHex(digest.digest())));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public record StoredFile(String fileName, String contentType, long size, String sha256) {
+    }
+
+    public static class TooLargeException extends IOException {
+        public TooLargeException(DataSize maxSize) {
+            super("Upload exceeds " + maxSize);
+        }
+    }
+}
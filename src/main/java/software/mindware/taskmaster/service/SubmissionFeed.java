@@ -0,0 +1,214 @@
+package software.mindware.taskmaster.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Pushes submission and challenge changes to the admin dashboard as Server-Sent Events.
+ * <p>
+ * The last {@code feed.buffer-size} events are kept in memory so a client that reconnects with {@code Last-Event-ID}
+ * gets exactly what it missed. Event ids are {@code <start time>-<sequence>}; if the id belongs to an earlier run of
+ * the application or has already dropped out of the buffer, the client gets a {@code resync} event and should reload
+ * its data. Buffering and sending happen on one thread, so events reach every client in order and a slow client
+ * never holds up the request that caused the event.
+ */
+@Service
+public class SubmissionFeed {
+    public static final String SUBMISSION_CREATED = "submission-created";
+    public static final String SUBMISSIONS_DELETED = "submissions-deleted";
+    public static final String CHALLENGE_CHANGED = "challenge-changed";
+    public static final String RESYNC = "resync";
+
+    private final String runId = Long.toString(System.currentTimeMillis());
+    private final int bufferSize;
+    private final Duration timeout;
+    private final ExecutorService executor;
+
+    // Only touched by the feed thread
+    private final Deque<FeedEvent> buffer = new ArrayDeque<>();
+    private long sequence;
+
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+    public SubmissionFeed(@Value("${feed.buffer-size:1000}") int bufferSize,
+                          @Value("${feed.timeout:PT30M}") Duration timeout) {
+        this.bufferSize = bufferSize;
+        this.timeout = timeout;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "submission-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens a stream of events. The emitter times out after {@code feed.timeout}; browsers then reconnect on their own
+     * and resume from the last event they received.
+     *
+     * @param lastEventId the id of the last event the client received, or null for a fresh subscription
+     */
+    public SseEmitter subscribe(String lastEventId) {
+        SseEmitter emitter = new SseEmitter(this.timeout.toMillis());
+        emitter.onCompletion(() -> this.emitters.remove(emitter));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> this.emitters.remove(emitter));
+        this.executor.execute(() -> {
+            if (lastEventId != null && !replay(emitter, lastEventId)) {
+                return;
+            }
+            this.emitters.add(emitter);
+        });
+        return emitter;
+    }
+
+    public void submissionCreated(long submissionId, long teamId, long challengeId, Instant uploadedAt) {
+        publish(SUBMISSION_CREATED, new SubmissionCreated(submissionId, teamId, challengeId, uploadedAt));
+    }
+
+    /**
+     * @param teamId      the team whose submissions were deleted, or null for all teams
+     * @param challengeId the challenge whose submissions were deleted, or null for all challenges
+     */
+    public void submissionsDeleted(Long teamId, Long challengeId, int count) {
+        publish(SUBMISSIONS_DELETED, new SubmissionsDeleted(teamId, challengeId, count));
+    }
+
+    /**
+     * @param change what happened to the challenge, e.g. {@code created} or {@code deleted}
+     */
+    public void challengeChanged(Long challengeId, String change) {
+        publish(CHALLENGE_CHANGED, new ChallengeChanged(challengeId, change));
+    }
+
+    /**
+     * Keeps idle connections open through proxies and notices clients that went away.
+     */
+    @Scheduled(fixedDelayString = "${feed.heartbeat-interval:PT20S}")
+    public void heartbeat() {
+        this.executor.execute(() -> {
+            for (SseEmitter emitter : this.emitters) {
+                send(emitter, SseEmitter.event().comment("heartbeat"));
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.executor.shutdownNow();
+        this.emitters.forEach(SseEmitter::complete);
+    }
+
+    /**
+     * Sends the event once the current transaction commits, or right away if there is none, so clients never see a
+     * change that was rolled back.
+     */
+    private void publish(String type, Object data) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(type, data);
+                }
+            });
+        } else {
+            enqueue(type, data);
+        }
+    }
+
+    private void enqueue(String type, Object data) {
+        this.executor.execute(() -> {
+            FeedEvent event = new FeedEvent(++this.sequence, type, data);
+            this.buffer.addLast(event);
+            if (this.buffer.size() > this.bufferSize) {
+                this.buffer.removeFirst();
+            }
+            for (SseEmitter emitter : this.emitters) {
+                send(emitter, toSse(event));
+            }
+        });
+    }
+
+    /**
+     * Sends the buffered events after the given id, or a resync event if some of them are no longer buffered.
+     *
+     * @return false if the client went away
+     */
+    private boolean replay(SseEmitter emitter, String lastEventId) {
+        long lastSequence = parseSequence(lastEventId);
+        FeedEvent oldest = this.buffer.peekFirst();
+        long firstAvailable = oldest != null ? oldest.sequence() : this.sequence + 1;
+        if (lastSequence < 0 || lastSequence > this.sequence || lastSequence + 1 < firstAvailable) {
+            return send(emitter, SseEmitter.event().id(eventId(this.sequence)).name(RESYNC).data("{}", MediaType.APPLICATION_JSON));
+        }
+        for (FeedEvent event : this.buffer) {
+            if (event.sequence() > lastSequence && !send(emitter, toSse(event))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the sequence number of an event id from this run, or -1 if it is malformed or from another run
+     */
+    private long parseSequence(String eventId) {
+        int separator = eventId.indexOf('-');
+        if (separator < 0 || !eventId.substring(0, separator).equals(this.runId)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private SseEmitter.SseEventBuilder toSse(FeedEvent event) {
+        return SseEmitter.event().id(eventId(event.sequence())).name(event.type()).data(event.data(), MediaType.APPLICATION_JSON);
+    }
+
+    private String eventId(long sequence) {
+        return this.runId + "-" + sequence;
+    }
+
+    /**
+     * @return false if the client went away; the container completes the emitter in that case
+     */
+    private boolean send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            this.emitters.remove(emitter);
+            return false;
+        }
+    }
+
+    private record FeedEvent(long sequence, String type, Object data) {
+    }
+
+    public record SubmissionCreated(long submissionId, long teamId, long challengeId, Instant uploadedAt) {
+    }
+
+    public record SubmissionsDeleted(Long teamId, Long challengeId, int count) {
+    }
+
+    public record ChallengeChanged(Long challengeId, String change) {
+    }
+}
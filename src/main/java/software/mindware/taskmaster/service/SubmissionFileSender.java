@@ -0,0 +1,86 @@
+package software.mindware.taskmaster.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import software.mindware.taskmaster.storage.SubmissionStorage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+/**
+ * Sends a byte range of one submission file. Where Tomcat supports sendfile the file is handed to the connector, which
+ * copies it to the socket with {@link FileChannel#transferTo} without passing through the heap. Otherwise the range is
+ * streamed as a response body.
+ */
+@Component
+public class SubmissionFileSender {
+    // Request attributes of Tomcat's sendfile support, see org.apache.catalina.Globals
+    private static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_FILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_FILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final SubmissionStorage submissionStorage;
+
+    public SubmissionFileSender(SubmissionStorage submissionStorage) {
+        this.submissionStorage = submissionStorage;
+    }
+
+    /**
+     * Prepares sending {@code length} bytes of the file behind the key, starting at {@code start}. Must be called
+     * before the response is committed, and the response must carry a matching Content-Length.
+     *
+     * @return the body to write, or empty if the container sends the file itself after the headers
+     */
+    public Optional<StreamingResponseBody> prepare(String key, long start, long length, HttpServletRequest request) throws IOException {
+        Optional<Path> localPath = this.submissionStorage.localPath(key);
+        if (localPath.isPresent() && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTR, localPath.get().toString());
+            request.setAttribute(SENDFILE_FILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_FILE_END_ATTR, start + length);
+            return Optional.empty();
+        }
+        if (localPath.isPresent()) {
+            Path path = localPath.get();
+            return Optional.of(outputStream -> {
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    WritableByteChannel target = Channels.newChannel(outputStream);
+                    long position = start;
+                    long end = start + length;
+                    while (position < end) {
+                        long transferred = channel.transferTo(position, end - position, target);
+                        if (transferred <= 0) {
+                            break;
+                        }
+                        position += transferred;
+                    }
+                }
+            });
+        }
+        return Optional.of(outputStream -> {
+            try (SeekableByteChannel channel = this.submissionStorage.openChannel(key, StandardOpenOption.READ)) {
+                channel.position(start);
+                ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                long remaining = length;
+                while (remaining > 0) {
+                    buffer.clear().limit((int) Math.min(BUFFER_SIZE, remaining));
+                    int read = channel.read(buffer);
+                    if (read == -1) {
+                        break;
+                    }
+                    outputStream.write(buffer.array(), 0, read);
+                    remaining -= read;
+                }
+            }
+        });
+    }
+}
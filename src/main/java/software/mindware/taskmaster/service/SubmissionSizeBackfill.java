@@ -0,0 +1,68 @@
+package software.mindware.taskmaster.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import software.mindware.taskmaster.model.Submission;
+import software.mindware.taskmaster.repository.SubmissionRepository;
+import software.mindware.taskmaster.storage.SubmissionStorage;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Records the file size of submissions saved before sizes were recorded, and adds it to the usage counters. Runs once
+ * in the background after startup and is a no-op once all sizes are known. Submissions whose file is missing keep an
+ * empty size.
+ */
+@Component
+public class SubmissionSizeBackfill {
+    private static final Logger log = LoggerFactory.getLogger(SubmissionSizeBackfill.class);
+    private static final int BATCH_SIZE = 500;
+
+    private final SubmissionRepository submissionRepository;
+    private final SubmissionStorage storage;
+    private final StorageUsageService storageUsageService;
+
+    public SubmissionSizeBackfill(SubmissionRepository submissionRepository, SubmissionStorage storage,
+                                  StorageUsageService storageUsageService) {
+        this.submissionRepository = submissionRepository;
+        this.storage = storage;
+        this.storageUsageService = storageUsageService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread thread = new Thread(this::backfill, "submission-size-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void backfill() {
+        long filled = 0;
+        long afterId = 0;
+        List<Submission> batch;
+        do {
+            batch = this.submissionRepository.findTop500BySizeIsNullAndIdGreaterThanOrderById(afterId);
+            for (Submission submission : batch) {
+                afterId = submission.getId();
+                if (submission.getTeam() == null || submission.getChallenge() == null || !this.storage.exists(submission.getFileName())) {
+                    continue;
+                }
+                try {
+                    long size = this.storage.size(submission.getFileName());
+                    this.storageUsageService.backfillSize(submission.getId(), submission.getTeam().getId(),
+                            submission.getChallenge().getId(), size);
+                    filled++;
+                } catch (IOException e) {
+                    log.warn("Could not read the size of {}", submission.getFileName(), e);
+                }
+            }
+        } while (batch.size() == BATCH_SIZE);
+        if (filled > 0) {
+            log.info("Recorded the size of {} existing submissions", filled);
+        }
+    }
+}
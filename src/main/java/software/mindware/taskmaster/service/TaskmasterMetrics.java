@@ -0,0 +1,118 @@
+package software.mindware.taskmaster.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Application metrics for uploads, exports and authentication. Repository timings come from Spring Data's own
+ * {@code spring.data.repository.invocations} metric and free space on {@code upload.dir} from {@code disk.free}.
+ */
+@Component
+public class TaskmasterMetrics {
+    public static final String UPLOAD_MULTIPART = "multipart";
+    public static final String UPLOAD_STREAM = "stream";
+    public static final String UPLOAD_CHUNKED = "chunked";
+
+    public static final String OUTCOME_SUCCESS = "success";
+    public static final String OUTCOME_REJECTED = "rejected";
+    public static final String OUTCOME_ERROR = "error";
+    public static final String OUTCOME_ABORTED = "aborted";
+
+    private final MeterRegistry registry;
+    private final Map<String, AtomicInteger> uploadsInFlight = new ConcurrentHashMap<>();
+
+    public TaskmasterMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Marks the start of an upload. Every call must be matched by {@link #finishUpload}.
+     */
+    public Timer.Sample startUpload(String type) {
+        inFlight(type).incrementAndGet();
+        return Timer.start(this.registry);
+    }
+
+    public void finishUpload(Timer.Sample sample, String type, long challengeId, long bytes, String outcome) {
+        inFlight(type).decrementAndGet();
+        String challenge = String.valueOf(challengeId);
+        sample.stop(Timer.builder("taskmaster.upload.duration")
+                .description("Time spent handling an upload")
+                .tags("type", type, "challenge", challenge, "outcome", outcome)
+                .publishPercentileHistogram()
+                .register(this.registry));
+        if (bytes > 0) {
+            DistributionSummary.builder("taskmaster.upload.size")
+                    .description("Bytes received per upload")
+                    .baseUnit("bytes")
+                    .tags("type", type, "challenge", challenge, "outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(this.registry)
+                    .record(bytes);
+        }
+    }
+
+    public void recordExport(long challengeId, long bytes, long durationNanos, String outcome) {
+        String challenge = String.valueOf(challengeId);
+        Timer.builder("taskmaster.export.duration")
+                .description("Time spent streaming a submissions ZIP")
+                .tags("challenge", challenge, "outcome", outcome)
+                .publishPercentileHistogram()
+                .register(this.registry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("taskmaster.export.size")
+                .description("Bytes written per submissions ZIP")
+                .baseUnit("bytes")
+                .tags("challenge", challenge, "outcome", outcome)
+                .publishPercentileHistogram()
+                .register(this.registry)
+                .record(bytes);
+    }
+
+    public void recordAdmissionRejected(String reason) {
+        Counter.builder("taskmaster.upload.admission.rejected")
+                .description("Uploads turned away by admission control before their body was read")
+                .tag("reason", reason)
+                .register(this.registry)
+                .increment();
+    }
+
+    public void recordAuthentication(boolean success) {
+        Counter.builder("taskmaster.auth")
+                .description("Team authentication attempts")
+                .tag("outcome", success ? OUTCOME_SUCCESS : "failure")
+                .register(this.registry)
+                .increment();
+    }
+
+    public void recordReconciliation(long orphansReclaimed, long filesMissing) {
+        Counter.builder("taskmaster.storage.orphans.reclaimed")
+                .description("Files in the upload directory without a submission that were deleted")
+                .register(this.registry)
+                .increment(orphansReclaimed);
+        Counter.builder("taskmaster.storage.files.missing")
+                .description("Submissions newly found without their file")
+                .register(this.registry)
+                .increment(filesMissing);
+    }
+
+    private AtomicInteger inFlight(String type) {
+        return this.uploadsInFlight.computeIfAbsent(type, key -> {
+            AtomicInteger counter = new AtomicInteger();
+            Gauge.builder("taskmaster.upload.in_flight", counter, AtomicInteger::get)
+                    .description("Uploads currently being handled")
+                    .tag("type", key)
+                    .register(this.registry);
+            return counter;
+        });
+    }
+}
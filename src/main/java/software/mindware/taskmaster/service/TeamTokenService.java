@@ -0,0 +1,224 @@
+package software.mindware.taskmaster.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import software.mindware.taskmaster.config.ReplicaRouting;
+import software.mindware.taskmaster.model.Team;
+import software.mindware.taskmaster.repository.TeamRepository;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Issues and verifies stateless team tokens of the form {@code tm1.<payload>.<signature>}. The payload holds the team
+ * id, the team's revocation epoch, the issue time, the expiry and the team name, and is signed with HMAC-SHA256.
+ * Verifying a token only needs the team's current epoch, which is cached in memory for {@code token.epoch-cache-ttl}.
+ * A revoke on another node therefore takes effect here within that time.
+ * <p>
+ * All nodes must share {@code token.secret}. Without one the application does not start, unless
+ * {@code token.allow-random-secret} is set for a single node or development, where a random key is fine.
+ * <p>
+ * Tokens in the old {@code teamName_uuid} format are still accepted (checked against the database) while
+ * {@code token.legacy-enabled} is true, so teams that logged in before the switch keep working.
+ */
+@Service
+public class TeamTokenService {
+    private static final Logger log = LoggerFactory.getLogger(TeamTokenService.class);
+
+    private static final String PREFIX = "tm1.";
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int UNKNOWN_TEAM_EPOCH = -1;
+
+    private final TeamRepository teamRepository;
+    private final SecretKeySpec key;
+    private final Duration ttl;
+    private final boolean legacyEnabled;
+    private final long epochCacheTtlNanos;
+
+    private final Map<Long, CachedEpoch> epochs = new ConcurrentHashMap<>();
+
+    public TeamTokenService(TeamRepository teamRepository,
+                            @Value("${token.secret:}") String secret,
+                            @Value("${token.ttl:P7D}") Duration ttl,
+                            @Value("${token.legacy-enabled:true}") boolean legacyEnabled,
+                            @Value("${token.epoch-cache-ttl:PT30S}") Duration epochCacheTtl,
+                            @Value("${token.allow-random-secret:false}") boolean allowRandomSecret) {
+        this.teamRepository = teamRepository;
+        this.ttl = ttl;
+        this.legacyEnabled = legacyEnabled;
+        this.epochCacheTtlNanos = epochCacheTtl.toNanos();
+        byte[] keyBytes;
+        if (secret == null || secret.isBlank()) {
+            if (!allowRandomSecret) {
+                throw new IllegalStateException("token.secret is not set. Set TOKEN_SECRET to the same value on every node, "
+                        + "or token.allow-random-secret=true on a single node");
+            }
+            log.warn("No token.secret configured, using a random key. Team tokens will not survive a restart.");
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+        } else {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        this.key = new SecretKeySpec(keyBytes, ALGORITHM);
+    }
+
+    /**
+     * Creates a signed token for the given team.
+     */
+    public String issue(Team team) {
+        Instant issuedAt = Instant.now();
+        Instant expiresAt = issuedAt.plus(this.ttl);
+        String payload = team.getId() + ":" + team.getTokenEpoch() + ":" + issuedAt.getEpochSecond() + ":" + expiresAt.getEpochSecond() + ":" + team.getTeamName();
+        String encodedPayload = Base64.getUrlEncoder().withoutPadding().encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        this.epochs.put(team.getId(), new CachedEpoch(team.getTokenEpoch(), System.nanoTime()));
+        return PREFIX + encodedPayload + "." + sign(encodedPayload);
+    }
+
+    /**
+     * Checks a token and returns the team it was issued to.
+     *
+     * @return the team behind the token, or empty if the token is malformed, forged, expired or revoked
+     */
+    public Optional<TeamToken> verify(String token) {
+        if (token == null) {
+            return Optional.empty();
+        }
+        if (token.startsWith(PREFIX)) {
+            return verifySigned(token.substring(PREFIX.length()));
+        }
+        if (this.legacyEnabled) {
+            return verifyLegacy(token);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Invalidates all tokens of a team, both signed and legacy ones, by bumping its epoch.
+     */
+    public void revoke(Team team) {
+        team.setTokenEpoch(team.getTokenEpoch() + 1);
+        team.getAuthenticationCodes().clear();
+        this.teamRepository.save(team);
+        this.epochs.put(team.getId(), new CachedEpoch(team.getTokenEpoch(), System.nanoTime()));
+    }
+
+    /**
+     * Forgets a deleted team so its tokens stop validating.
+     */
+    public void forget(Long teamId) {
+        this.epochs.put(teamId, new CachedEpoch(UNKNOWN_TEAM_EPOCH, System.nanoTime()));
+    }
+
+    private Optional<TeamToken> verifySigned(String token) {
+        int dot = token.indexOf('.');
+        if (dot < 0) {
+            return Optional.empty();
+        }
+        String encodedPayload = token.substring(0, dot);
+        byte[] expected = sign(encodedPayload).getBytes(StandardCharsets.US_ASCII);
+        byte[] actual = token.substring(dot + 1).getBytes(StandardCharsets.US_ASCII);
+        if (!MessageDigest.isEqual(expected, actual)) {
+            return Optional.empty();
+        }
+
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(encodedPayload), StandardCharsets.UTF_8).split(":", 5);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        if (parts.length != 5) {
+            return Optional.empty();
+        }
+        long teamId;
+        int epoch;
+        Instant issuedAt;
+        Instant expiresAt;
+        try {
+            teamId = Long.parseLong(parts[0]);
+            epoch = Integer.parseInt(parts[1]);
+            issuedAt = Instant.ofEpochSecond(Long.parseLong(parts[2]));
+            expiresAt = Instant.ofEpochSecond(Long.parseLong(parts[3]));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+        if (!Instant.now().isBefore(expiresAt)) {
+            return Optional.empty();
+        }
+        if (currentEpoch(teamId) != epoch) {
+            return Optional.empty();
+        }
+        return Optional.of(new TeamToken(teamId, parts[4], issuedAt, expiresAt));
+    }
+
+    private Optional<TeamToken> verifyLegacy(String token) {
+        if (!token.contains("_")) {
+            return Optional.empty();
+        }
+        String teamName = token.split("_")[0];
+        String authCode = token.split("_")[1];
+        Optional<Team> optionalTeam;
+        try (ReplicaRouting.Scope scope = ReplicaRouting.primaryOnly()) {
+            optionalTeam = this.teamRepository.findFirstByTeamName(teamName);
+        }
+        if (optionalTeam.isEmpty()) {
+            return Optional.empty();
+        }
+        Team team = optionalTeam.get();
+        if (!team.getAuthenticationCodes().contains(authCode)) {
+            return Optional.empty();
+        }
+        return Optional.of(new TeamToken(team.getId(), team.getTeamName(), null, null));
+    }
+
+    private int currentEpoch(long teamId) {
+        CachedEpoch cached = this.epochs.get(teamId);
+        if (cached == null || isExpired(cached)) {
+            cached = this.epochs.compute(teamId, (id, current) -> current != null && !isExpired(current) ? current : loadEpoch(id));
+        }
+        return cached.epoch();
+    }
+
+    private CachedEpoch loadEpoch(long teamId) {
+        // A stale epoch would keep revoked tokens valid for as long as it is cached
+        try (ReplicaRouting.Scope scope = ReplicaRouting.primaryOnly()) {
+            return new CachedEpoch(this.teamRepository.findTokenEpochById(teamId).orElse(UNKNOWN_TEAM_EPOCH), System.nanoTime());
+        }
+    }
+
+    private boolean isExpired(CachedEpoch cached) {
+        return System.nanoTime() - cached.loadedAt() > this.epochCacheTtlNanos;
+    }
+
+    private String sign(String encodedPayload) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(this.key);
+            byte[] signature = mac.doFinal(encodedPayload.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+
+    /**
+     * A verified team token. Issue and expiry times are null for legacy tokens.
+     */
+    public record TeamToken(long teamId, String teamName, Instant issuedAt, Instant expiresAt) {
+    }
+
+    private record CachedEpoch(int epoch, long loadedAt) {
+    }
+}
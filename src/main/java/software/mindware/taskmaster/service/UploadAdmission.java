@@ -0,0 +1,272 @@
+package software.mindware.taskmaster.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import software.mindware.taskmaster.dto.UploadLimits;
+import software.mindware.taskmaster.repository.ChallengeRepository;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+/**
+ * Decides whether an upload may start, before any of its body is read. Three limits apply:
+ * <ul>
+ *     <li>the number of uploads a team may run at once,</li>
+ *     <li>a per-team token bucket on bytes, so a team's average rate stays below its share,</li>
+ *     <li>a token bucket for the whole node, the disk bandwidth budget of {@code upload.dir}.</li>
+ * </ul>
+ * Buckets are charged with the declared size of an upload when it is admitted and may go into debt, so a single
+ * large upload is never impossible; the next one waits until the debt is paid off. A team without uploads in flight
+ * may start one while the disk budget is up to one burst in debt, so busy teams cannot lock idle teams out.
+ * <p>
+ * The first two limits can be set per challenge; values of zero or less disable a limit. {@link #invalidate(long)} only
+ * reaches this node, so the limits of a challenge are also reloaded after {@code upload.admission.limits-ttl}.
+ */
+@Service
+public class UploadAdmission {
+    public static final String REASON_CONCURRENCY = "concurrency";
+    public static final String REASON_TEAM_RATE = "team-rate";
+    public static final String REASON_DISK_BUDGET = "disk-budget";
+
+    private static final Duration CONCURRENCY_RETRY_AFTER = Duration.ofSeconds(5);
+
+    private final ChallengeRepository challengeRepository;
+    private final boolean enabled;
+    private final int defaultMaxConcurrent;
+    private final long defaultBytesPerSecond;
+    private final long teamBurst;
+    private final long diskBurst;
+    private final TokenBucket disk;
+    private final long limitsTtlNanos;
+
+    private final Map<Long, CachedLimits> limitsByChallenge = new ConcurrentHashMap<>();
+    private final Map<TeamKey, TeamState> teams = new ConcurrentHashMap<>();
+
+    public UploadAdmission(ChallengeRepository challengeRepository,
+                           @Value("${upload.admission.enabled:true}") boolean enabled,
+                           @Value("${upload.admission.max-concurrent-per-team:2}") int defaultMaxConcurrent,
+                           @Value("${upload.admission.team-rate:25MB}") DataSize teamRate,
+                           @Value("${upload.admission.team-burst:1000MB}") DataSize teamBurst,
+                           @Value("${upload.admission.disk-rate:200MB}") DataSize diskRate,
+                           @Value("${upload.admission.disk-burst:2000MB}") DataSize diskBurst,
+                           @Value("${upload.admission.limits-ttl:PT30S}") Duration limitsTtl) {
+        this.challengeRepository = challengeRepository;
+        this.enabled = enabled;
+        this.defaultMaxConcurrent = defaultMaxConcurrent;
+        this.defaultBytesPerSecond = teamRate.toBytes();
+        this.teamBurst = teamBurst.toBytes();
+        this.diskBurst = diskBurst.toBytes();
+        this.disk = new TokenBucket(diskRate.toBytes(), this.diskBurst);
+        this.limitsTtlNanos = limitsTtl.toNanos();
+    }
+
+    /**
+     * @param client identifies the team, or the client address if the team is not known yet
+     * @param bytes  the declared size of the upload
+     */
+    public Admission admit(String client, long challengeId, long bytes) {
+        if (!this.enabled) {
+            return new Admission(() -> {
+            }, 0, null);
+        }
+        UploadLimits limits = limits(challengeId);
+        int maxConcurrent = limits.getMaxConcurrentUploadsPerTeam() != null ? limits.getMaxConcurrentUploadsPerTeam() : this.defaultMaxConcurrent;
+        long bytesPerSecond = limits.getUploadBytesPerSecondPerTeam() != null ? limits.getUploadBytesPerSecondPerTeam() : this.defaultBytesPerSecond;
+
+        TeamKey key = new TeamKey(challengeId, client);
+        TeamState team;
+        while (true) {
+            team = this.teams.computeIfAbsent(key, k -> new TeamState(new TokenBucket(bytesPerSecond, this.teamBurst)));
+            // The challenge's rate may have changed since the bucket was created
+            team.bucket.setRate(bytesPerSecond);
+            synchronized (team) {
+                if (team.removed) {
+                    // Removed as idle after it was looked up, the next lookup creates a new one
+                    continue;
+                }
+                if (maxConcurrent > 0 && team.active >= maxConcurrent) {
+                    return Admission.rejected(CONCURRENCY_RETRY_AFTER.toNanos(), REASON_CONCURRENCY);
+                }
+                long teamWait = team.bucket.nanosUntil(0);
+                if (teamWait > 0) {
+                    return Admission.rejected(teamWait, REASON_TEAM_RATE);
+                }
+                long diskWait = this.disk.nanosUntil(team.active == 0 ? -this.diskBurst : 0);
+                if (diskWait > 0) {
+                    return Admission.rejected(diskWait, REASON_DISK_BUDGET);
+                }
+                team.bucket.take(bytes);
+                this.disk.take(bytes);
+                team.active++;
+                break;
+            }
+        }
+        TeamState admitted = team;
+        AtomicBoolean released = new AtomicBoolean();
+        return new Admission(() -> {
+            if (released.compareAndSet(false, true)) {
+                synchronized (admitted) {
+                    admitted.active--;
+                }
+            }
+        }, 0, null);
+    }
+
+    /**
+     * Drops the cached limits of a challenge. Must be called after they were changed. Teams with uploads in flight
+     * keep their bucket, which switches to the new rate on their next admission.
+     */
+    public void invalidate(long challengeId) {
+        this.limitsByChallenge.remove(challengeId);
+        removeIdleTeams(key -> key.challengeId() == challengeId);
+    }
+
+    /**
+     * Forgets teams that have no uploads running and have paid off their debt, they would start from a full bucket
+     * anyway.
+     */
+    @Scheduled(fixedDelayString = "${upload.admission.cleanup-interval:PT5M}")
+    public void removeIdleTeams() {
+        removeIdleTeams(key -> true);
+    }
+
+    /**
+     * Marks each state as removed under its lock, so an admission that looked it up just before cannot count an upload
+     * on a state that is no longer in the map.
+     */
+    private void removeIdleTeams(Predicate<TeamKey> filter) {
+        for (Map.Entry<TeamKey, TeamState> entry : this.teams.entrySet()) {
+            if (!filter.test(entry.getKey())) {
+                continue;
+            }
+            TeamState team = entry.getValue();
+            synchronized (team) {
+                if (team.isIdle()) {
+                    team.removed = true;
+                    this.teams.remove(entry.getKey(), team);
+                }
+            }
+        }
+    }
+
+    private UploadLimits limits(long challengeId) {
+        CachedLimits cached = this.limitsByChallenge.get(challengeId);
+        if (cached == null || isExpired(cached)) {
+            cached = this.limitsByChallenge.compute(challengeId, (id, current) -> current != null && !isExpired(current) ? current
+                    : new CachedLimits(this.challengeRepository.findUploadLimitsById(id).orElseGet(() -> new UploadLimits(null, null)), System.nanoTime()));
+        }
+        return cached.limits();
+    }
+
+    private boolean isExpired(CachedLimits cached) {
+        return System.nanoTime() - cached.loadedAt() > this.limitsTtlNanos;
+    }
+
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * @param permit            to close when the upload is done, null if the upload was rejected
+     * @param retryAfterSeconds when the client may try again, if rejected
+     * @param reason            which limit was hit, if rejected
+     */
+    public record Admission(Permit permit, long retryAfterSeconds, String reason) {
+        static Admission rejected(long waitNanos, String reason) {
+            return new Admission(null, Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos - 1) + 1), reason);
+        }
+
+        public boolean isAdmitted() {
+            return this.permit != null;
+        }
+    }
+
+    private record TeamKey(long challengeId, String client) {
+    }
+
+    private record CachedLimits(UploadLimits limits, long loadedAt) {
+    }
+
+    private static final class TeamState {
+        final TokenBucket bucket;
+        int active;
+        boolean removed;
+
+        TeamState(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+
+        synchronized boolean isIdle() {
+            return this.active == 0 && this.bucket.isFull();
+        }
+    }
+
+    /**
+     * Token bucket over bytes that may go into debt. A rate of zero or less never limits.
+     */
+    private static final class TokenBucket {
+        private double bytesPerNano;
+        private final long capacity;
+        private double level;
+        private long updatedAt;
+
+        TokenBucket(long bytesPerSecond, long capacity) {
+            this.bytesPerNano = bytesPerSecond / 1e9;
+            this.capacity = capacity;
+            this.level = capacity;
+            this.updatedAt = System.nanoTime();
+        }
+
+        /**
+         * @return nanoseconds until the level is back at the floor, 0 if it already is
+         */
+        synchronized long nanosUntil(double floor) {
+            if (this.bytesPerNano <= 0) {
+                return 0;
+            }
+            refill();
+            return this.level >= floor ? 0 : (long) Math.ceil((floor - this.level) / this.bytesPerNano);
+        }
+
+        synchronized void take(long bytes) {
+            if (this.bytesPerNano > 0) {
+                refill();
+                this.level -= bytes;
+            }
+        }
+
+        /**
+         * Switches to a new rate. What was refilled so far counts at the old rate.
+         */
+        synchronized void setRate(long bytesPerSecond) {
+            double newBytesPerNano = bytesPerSecond / 1e9;
+            if (newBytesPerNano != this.bytesPerNano) {
+                refill();
+                this.bytesPerNano = newBytesPerNano;
+            }
+        }
+
+        synchronized boolean isFull() {
+            if (this.bytesPerNano <= 0) {
+                return true;
+            }
+            refill();
+            return this.level >= this.capacity;
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            if (this.bytesPerNano > 0) {
+                this.level = Math.min(this.capacity, this.level + (now - this.updatedAt) * this.bytesPerNano);
+            }
+            this.updatedAt = now;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package software.mindware.taskmaster.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import software.mindware.taskmaster.model.Submission;
+import software.mindware.taskmaster.repository.SubmissionRepository;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Moves submission files from the old flat {@code upload.dir} layout into the sharded layout while the application
+ * keeps serving requests. Each submission's key is updated before its file is moved; {@link LocalSubmissionStorage}
+ * falls back to the flat location in between, so files stay readable throughout.
+ */
+@Component
+public class FlatLayoutMigration {
+    private static final Logger log = LoggerFactory.getLogger(FlatLayoutMigration.class);
+    private static final int BATCH_SIZE = 500;
+
+    private final SubmissionRepository submissionRepository;
+    private final SubmissionStorage storage;
+
+    @Value("${upload.storage.migrate-flat-layout:true}")
+    private boolean enabled;
+
+    public FlatLayoutMigration(SubmissionRepository submissionRepository, SubmissionStorage storage) {
+        this.submissionRepository = submissionRepository;
+        this.storage = storage;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!this.enabled || !(this.storage instanceof LocalSubmissionStorage)) {
+            return;
+        }
+        Thread thread = new Thread(this::migrate, "flat-layout-migration");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void migrate() {
+        LocalSubmissionStorage localStorage = (LocalSubmissionStorage) this.storage;
+        long moved = 0;
+        List<Submission> batch;
+        do {
+            batch = this.submissionRepository.findTop500ByFileNameNotContaining("/");
+            for (Submission submission : batch) {
+                String flatKey = submission.getFileName();
+                String shardedKey = localStorage.shardedKey(submission.getChallenge().getId(), flatKey);
+                submission.setFileName(shardedKey);
+                this.submissionRepository.save(submission);
+                try {
+                    localStorage.moveFromFlatLayout(flatKey, shardedKey);
+                    moved++;
+                } catch (IOException e) {
+                    log.warn("Could not move {} to {}, it stays readable from the flat layout", flatKey, shardedKey, e);
+                }
+            }
+        } while (batch.size() == BATCH_SIZE);
+        if (moved > 0) {
+            log.info("Moved {} submission files to the sharded layout", moved);
+        }
+    }
+}
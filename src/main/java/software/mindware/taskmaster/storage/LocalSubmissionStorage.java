@@ -0,0 +1,184 @@
+package software.mindware.taskmaster.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Keeps submission files under {@code upload.dir}, sharded as {@code <challengeId>/<hash prefix>/<file name>} so no
+ * single directory grows to tens of thousands of entries.
+ * <p>
+ * Keys without a directory part come from the old flat layout. While {@link FlatLayoutMigration} moves those files, a
+ * sharded key whose file is not there yet falls back to the flat location.
+ */
+@Component
+@ConditionalOnProperty(name = "upload.storage.type", havingValue = "local", matchIfMissing = true)
+public class LocalSubmissionStorage implements SubmissionStorage {
+    private final Path root;
+
+    public LocalSubmissionStorage(@Value("${upload.dir}") String uploadDir) {
+        this.root = Paths.get(uploadDir).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public String createKey(String teamName, long challengeId, String extension) {
+        return shardedKey(challengeId, teamName + "_" + challengeId + "_" + UUID.randomUUID() + extension);
+    }
+
+    /**
+     * @return the sharded key for a file name of the given challenge
+     */
+    public String shardedKey(long challengeId, String fileName) {
+        return challengeId + "/" + String.format("%02x", fileName.hashCode() & 0xFF) + "/" + fileName;
+    }
+
+    @Override
+    public SeekableByteChannel openChannel(String key, OpenOption... options) throws IOException {
+        Path path = resolve(key);
+        Files.createDirectories(path.getParent());
+        return Files.newByteChannel(resolveExisting(key), options);
+    }
+
+    @Override
+    public void write(String key, InputStream in) throws IOException {
+        Path path = resolve(key);
+        Files.createDirectories(path.getParent());
+        Files.copy(in, path);
+    }
+
+    @Override
+    public InputStream openInputStream(String key) throws IOException {
+        return Files.newInputStream(resolveExisting(key));
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.isRegularFile(resolveExisting(key));
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        return Files.size(resolveExisting(key));
+    }
+
+    @Override
+    public FileTime lastModified(String key) throws IOException {
+        return Files.getLastModifiedTime(resolveExisting(key));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+        Files.deleteIfExists(flatPath(key));
+    }
+
+    @Override
+    public void move(String sourceKey, String targetKey) throws IOException {
+        Path target = resolve(targetKey);
+        Files.createDirectories(target.getParent());
+        Files.move(resolveExisting(sourceKey), target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) throws IOException {
+        Path path = resolve(key);
+        Files.createDirectories(path.getParent());
+        return Optional.of(resolveExisting(key));
+    }
+
+    /**
+     * Moves a file from the flat layout to its sharded location. Does nothing if the flat file does not exist.
+     */
+    void moveFromFlatLayout(String flatKey, String shardedKey) throws IOException {
+        Path source = resolve(flatKey);
+        if (!Files.exists(source)) {
+            return;
+        }
+        Path target = resolve(shardedKey);
+        Files.createDirectories(target.getParent());
+        Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the names of the directories in the directory behind the key, sorted. The empty key is
+     * {@code upload.dir} itself
+     */
+    List<String> listDirectories(String key) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(resolve(key), Files::isDirectory)) {
+            entries.forEach(entry -> names.add(entry.getFileName().toString()));
+        } catch (NoSuchFileException e) {
+            return List.of();
+        }
+        names.sort(Comparator.naturalOrder());
+        return names;
+    }
+
+    /**
+     * @return the regular files in the directory behind the key, sorted by key
+     */
+    List<FileEntry> listFiles(String key) throws IOException {
+        List<FileEntry> files = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(resolve(key))) {
+            for (Path entry : entries) {
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                } catch (NoSuchFileException e) {
+                    // Deleted while listing
+                    continue;
+                }
+                if (attributes.isRegularFile()) {
+                    files.add(new FileEntry(key + "/" + entry.getFileName(), attributes.lastModifiedTime().toInstant()));
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return List.of();
+        }
+        files.sort(Comparator.comparing(FileEntry::key));
+        return files;
+    }
+
+    record FileEntry(String key, Instant lastModified) {
+    }
+
+    private Path resolve(String key) {
+        Path path = this.root.resolve(key).normalize();
+        if (!path.startsWith(this.root)) {
+            throw new IllegalArgumentException("Key points outside the upload directory: " + key);
+        }
+        return path;
+    }
+
+    private Path flatPath(String key) {
+        return resolve(SubmissionStorage.fileName(key));
+    }
+
+    private Path resolveExisting(String key) {
+        Path path = resolve(key);
+        if (Files.exists(path)) {
+            return path;
+        }
+        Path flat = flatPath(key);
+        return Files.exists(flat) ? flat : path;
+    }
+}
@@ -0,0 +1,321 @@
+package software.mindware.taskmaster.storage;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import software.mindware.taskmaster.dto.SubmissionFile;
+import software.mindware.taskmaster.repository.SubmissionRepository;
+import software.mindware.taskmaster.repository.UploadSessionRepository;
+import software.mindware.taskmaster.service.PreviewService;
+import software.mindware.taskmaster.service.TaskmasterMetrics;
+import software.mindware.taskmaster.storage.LocalSubmissionStorage.FileEntry;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares {@code upload.dir} with the submission table. Files get orphaned when saving a submission fails after its
+ * file was written, or when reclaiming deleted submissions fails; submissions lose their file when it is removed
+ * outside the application.
+ * <p>
+ * A pass first walks the challenge directories in order and looks up the files of each shard directory in the
+ * submission and upload session tables, then pages through the submissions by id and checks that their files exist.
+ * Shard directories and pages are handled by {@code reconcile.workers} threads in parallel, which together look at no
+ * more than {@code reconcile.files-per-second} files. A run stops after {@code reconcile.files-per-run} files and the
+ * next one continues where it stopped, also after a restart, since the position is kept in the database.
+ * <p>
+ * Orphans are deleted once they are older than {@code reconcile.orphan-grace-period}, so uploads whose row is not
+ * committed yet are left alone. Missing files are flagged in {@code Submission.fileMissingSince}. Export archives,
+ * {@code .tmp} files and previews of existing submissions are never touched.
+ */
+@Component
+public class StorageReconciler {
+    private static final Logger log = LoggerFactory.getLogger(StorageReconciler.class);
+    private static final int PAGE_SIZE = 500;
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final SubmissionRepository submissionRepository;
+    private final UploadSessionRepository uploadSessionRepository;
+    private final SubmissionStorage storage;
+    private final JdbcTemplate jdbcTemplate;
+    private final TaskmasterMetrics metrics;
+    private final boolean enabled;
+    private final Duration orphanGracePeriod;
+    private final long filesPerRun;
+    private final Throttle throttle;
+    private final ExecutorService runner;
+    private final ExecutorService workers;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public StorageReconciler(SubmissionRepository submissionRepository, UploadSessionRepository uploadSessionRepository,
+                             SubmissionStorage storage, JdbcTemplate jdbcTemplate, TaskmasterMetrics metrics,
+                             @Value("${reconcile.enabled:true}") boolean enabled,
+                             @Value("${reconcile.orphan-grace-period:PT1H}") Duration orphanGracePeriod,
+                             @Value("${reconcile.files-per-run:100000}") long filesPerRun,
+                             @Value("${reconcile.files-per-second:500}") int filesPerSecond,
+                             @Value("${reconcile.workers:2}") int workers) {
+        this.submissionRepository = submissionRepository;
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.storage = storage;
+        this.jdbcTemplate = jdbcTemplate;
+        this.metrics = metrics;
+        this.enabled = enabled;
+        this.orphanGracePeriod = orphanGracePeriod;
+        this.filesPerRun = filesPerRun;
+        this.throttle = new Throttle(filesPerSecond);
+        this.runner = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "storage-reconciler");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "storage-reconciler-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts a run in the background, unless the previous one is still going.
+     */
+    @Scheduled(fixedDelayString = "${reconcile.interval:PT1H}", initialDelayString = "${reconcile.initial-delay:PT10M}")
+    public void schedule() {
+        if (!this.enabled || !(this.storage instanceof LocalSubmissionStorage) || !this.running.compareAndSet(false, true)) {
+            return;
+        }
+        this.runner.execute(() -> {
+            try {
+                reconcile();
+            } catch (IOException | RuntimeException e) {
+                log.warn("Storage reconciliation failed, the next run continues from the last checkpoint", e);
+            } finally {
+                this.running.set(false);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.runner.shutdownNow();
+        this.workers.shutdownNow();
+    }
+
+    void reconcile() throws IOException {
+        LocalSubmissionStorage localStorage = (LocalSubmissionStorage) this.storage;
+        Checkpoint checkpoint = loadCheckpoint();
+        Run run = new Run();
+
+        // Only numeric directories hold submissions; exports/ and files of the old flat layout are skipped
+        List<Long> challengeIds = localStorage.listDirectories("").stream()
+                .filter(name -> name.chars().allMatch(Character::isDigit))
+                .map(Long::parseLong)
+                .filter(challengeId -> challengeId > checkpoint.lastChallengeDirectory())
+                .sorted()
+                .toList();
+        for (long challengeId : challengeIds) {
+            if (run.examined.get() >= this.filesPerRun || Thread.currentThread().isInterrupted()) {
+                finish(run, false);
+                return;
+            }
+            String challengeKey = String.valueOf(challengeId);
+            List<String> shardKeys = localStorage.listDirectories(challengeKey).stream()
+                    .map(shard -> challengeKey + "/" + shard)
+                    .toList();
+            inParallel(shardKeys, shardKey -> reclaimOrphans(localStorage, shardKey, run));
+            saveCheckpoint(new Checkpoint(challengeId, checkpoint.lastSubmissionId()));
+        }
+
+        long afterId = checkpoint.lastSubmissionId();
+        List<SubmissionFile> page;
+        do {
+            if (run.examined.get() >= this.filesPerRun || Thread.currentThread().isInterrupted()) {
+                finish(run, false);
+                return;
+            }
+            page = this.submissionRepository.findFilesAfter(afterId, Limit.of(PAGE_SIZE));
+            if (page.isEmpty()) {
+                break;
+            }
+            checkFiles(page, run);
+            afterId = page.get(page.size() - 1).getId();
+            saveCheckpoint(new Checkpoint(Long.MAX_VALUE, afterId));
+        } while (page.size() == PAGE_SIZE);
+
+        saveCheckpoint(new Checkpoint(-1, 0));
+        finish(run, true);
+    }
+
+    private void finish(Run run, boolean passComplete) {
+        this.metrics.recordReconciliation(run.reclaimed.get(), run.missing.get());
+        log.info("Storage reconciliation looked at {} files, deleted {} orphans and found {} missing files{}",
+                run.examined.get(), run.reclaimed.get(), run.missing.get(),
+                passComplete ? ", the pass is complete" : ", the next run continues");
+    }
+
+    private void reclaimOrphans(LocalSubmissionStorage localStorage, String shardKey, Run run) throws IOException, InterruptedException {
+        List<FileEntry> files = localStorage.listFiles(shardKey);
+        this.throttle.acquire(files.size());
+        run.examined.addAndGet(files.size());
+
+        // Files by the submission file they belong to, previews are kept for as long as their submission exists
+        Instant cutoff = Instant.now().minus(this.orphanGracePeriod);
+        Map<String, List<FileEntry>> filesBySubmission = new LinkedHashMap<>();
+        for (FileEntry file : files) {
+            if (file.key().endsWith(TEMP_SUFFIX) || !file.lastModified().isBefore(cutoff)) {
+                continue;
+            }
+            filesBySubmission.computeIfAbsent(submissionKey(file.key()), key -> new ArrayList<>()).add(file);
+        }
+
+        List<String> keys = new ArrayList<>(filesBySubmission.keySet());
+        for (int start = 0; start < keys.size(); start += PAGE_SIZE) {
+            List<String> batch = keys.subList(start, Math.min(start + PAGE_SIZE, keys.size()));
+            Set<String> known = new HashSet<>(this.submissionRepository.findFileNamesIn(batch));
+            known.addAll(this.uploadSessionRepository.findFileNamesIn(batch));
+            for (String key : batch) {
+                if (known.contains(key)) {
+                    continue;
+                }
+                for (FileEntry orphan : filesBySubmission.get(key)) {
+                    this.storage.delete(orphan.key());
+                    run.reclaimed.incrementAndGet();
+                    log.info("Deleted orphaned file {}, last modified {}", orphan.key(), orphan.lastModified());
+                }
+            }
+        }
+    }
+
+    private void checkFiles(List<SubmissionFile> page, Run run) {
+        Set<Long> missing = ConcurrentHashMap.newKeySet();
+        Set<Long> found = ConcurrentHashMap.newKeySet();
+        inParallel(page, file -> {
+            if (file.getFileName() == null) {
+                return;
+            }
+            this.throttle.acquire(1);
+            run.examined.incrementAndGet();
+            boolean exists = this.storage.exists(file.getFileName());
+            if (!exists && file.getFileMissingSince() == null) {
+                missing.add(file.getId());
+                log.warn("File {} of submission {} is missing", file.getFileName(), file.getId());
+            } else if (exists && file.getFileMissingSince() != null) {
+                found.add(file.getId());
+            }
+        });
+        if (!missing.isEmpty()) {
+            this.submissionRepository.updateFileMissingSince(missing, Instant.now());
+            run.missing.addAndGet(missing.size());
+        }
+        if (!found.isEmpty()) {
+            this.submissionRepository.updateFileMissingSince(found, null);
+        }
+    }
+
+    /**
+     * Runs the task for every item on the workers and waits for all of them. Failures are logged per item.
+     */
+    private <T> void inParallel(List<T> items, Task<T> task) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (T item : items) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    task.run(item);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Storage reconciliation of {} failed", item, e);
+                }
+            }, this.workers));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+    }
+
+    /**
+     * @return the key of the submission file a preview belongs to, or the key itself
+     */
+    private static String submissionKey(String key) {
+        for (String suffix : List.of(PreviewService.PREVIEW_SUFFIX, PreviewService.METADATA_SUFFIX)) {
+            if (key.endsWith(suffix)) {
+                return key.substring(0, key.length() - suffix.length());
+            }
+        }
+        return key;
+    }
+
+    private Checkpoint loadCheckpoint() {
+        return this.jdbcTemplate.queryForObject(
+                "select last_challenge_directory, last_submission_id from storage_reconciliation where id = 1",
+                (resultSet, row) -> new Checkpoint(resultSet.getLong(1), resultSet.getLong(2)));
+    }
+
+    private void saveCheckpoint(Checkpoint checkpoint) {
+        this.jdbcTemplate.update("update storage_reconciliation set last_challenge_directory = ?, last_submission_id = ? where id = 1",
+                checkpoint.lastChallengeDirectory(), checkpoint.lastSubmissionId());
+    }
+
+    private interface Task<T> {
+        void run(T item) throws IOException, InterruptedException;
+    }
+
+    /**
+     * @param lastChallengeDirectory the last challenge directory walked in this pass, {@code Long.MAX_VALUE} once all
+     *                               are, -1 if none is yet
+     * @param lastSubmissionId       the last submission checked in this pass
+     */
+    private record Checkpoint(long lastChallengeDirectory, long lastSubmissionId) {
+    }
+
+    private static final class Run {
+        final AtomicLong examined = new AtomicLong();
+        final AtomicLong reclaimed = new AtomicLong();
+        final AtomicLong missing = new AtomicLong();
+    }
+
+    /**
+     * Spaces out file lookups across all workers to a fixed rate.
+     */
+    private static final class Throttle {
+        private final long nanosPerFile;
+        private long next = System.nanoTime();
+
+        Throttle(int filesPerSecond) {
+            this.nanosPerFile = filesPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / filesPerSecond : 0;
+        }
+
+        void acquire(int files) throws InterruptedException {
+            long wait;
+            synchronized (this) {
+                long now = System.nanoTime();
+                long start = Math.max(this.next, now);
+                this.next = start + this.nanosPerFile * files;
+                wait = start - now;
+            }
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package software.mindware.taskmaster.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * Stores submission files by key. The key is what {@code Submission.fileName} holds; its last path segment is the
+ * human readable file name used in exports.
+ */
+public interface SubmissionStorage {
+    /**
+     * Creates a fresh, unused key for a new submission file.
+     *
+     * @param extension file extension including the dot, or an empty string
+     */
+    String createKey(String teamName, long challengeId, String extension);
+
+    /**
+     * Opens a channel on the file behind the key, e.g. with {@code CREATE_NEW, WRITE} for a new file.
+     */
+    SeekableByteChannel openChannel(String key, OpenOption... options) throws IOException;
+
+    /**
+     * Writes the stream to a new file behind the key.
+     */
+    void write(String key, InputStream in) throws IOException;
+
+    InputStream openInputStream(String key) throws IOException;
+
+    boolean exists(String key);
+
+    long size(String key) throws IOException;
+
+    FileTime lastModified(String key) throws IOException;
+
+    /**
+     * Deletes the file behind the key, if there is one.
+     */
+    void delete(String key) throws IOException;
+
+    /**
+     * Moves a file to another key, replacing the file there. Readers that opened the old target keep reading it.
+     */
+    void move(String sourceKey, String targetKey) throws IOException;
+
+    /**
+     * Reads the file behind the key once to compute its hex SHA-256.
+     */
+    default String sha256(String key) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        try (InputStream in = new DigestInputStream(openInputStream(key), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Returns the local file behind the key, with its parent directories created, for backends that keep files on
+     * the local file system. Callers use it for fast paths like renaming a spooled upload into place.
+     */
+    default Optional<Path> localPath(String key) throws IOException {
+        return Optional.empty();
+    }
+
+    /**
+     * @return the file name part of a key
+     */
+    static String fileName(String key) {
+        return key.substring(key.lastIndexOf('/') + 1);
+    }
+}
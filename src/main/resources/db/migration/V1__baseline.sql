@@ -0,0 +1,36 @@
+-- Schema as created by spring.jpa.hibernate.ddl-auto=update for the original challenge, team and submission entities.
+-- Existing databases are baselined at this version and skip it. Columns and tables that ddl-auto added later are
+-- created by V5 where they are missing.
+
+create table challenge (
+    id bigint not null auto_increment,
+    title varchar(255),
+    description varchar(255),
+    start_date datetime(6),
+    primary key (id)
+);
+
+create table team (
+    id bigint not null auto_increment,
+    team_name varchar(255),
+    code varchar(255),
+    primary key (id)
+);
+
+create table team_authentication_codes (
+    team_id bigint not null,
+    authentication_codes varchar(255)
+);
+
+create table submission (
+    id bigint not null auto_increment,
+    file_name varchar(255),
+    uploaded_at datetime(6),
+    challenge_id bigint,
+    team_id bigint,
+    primary key (id)
+);
+
+alter table team_authentication_codes add constraint fk_team_authentication_codes_team foreign key (team_id) references team (id);
+alter table submission add constraint fk_submission_challenge foreign key (challenge_id) references challenge (id);
+alter table submission add constraint fk_submission_team foreign key (team_id) references team (id);
@@ -0,0 +1,13 @@
+-- Team names identify teams at login. Rename duplicates that slipped in before this was enforced, keeping the
+-- oldest team under the original name, which is the one logins already found.
+update team set team_name = concat(team_name, '_', id)
+where team_name is not null
+  and id not in (select keep_id from (select min(id) as keep_id from team where team_name is not null group by team_name) as kept);
+
+alter table team add constraint uk_team_team_name unique (team_name);
+
+-- Current and upcoming challenge lookups filter and sort on the start date
+create index ix_challenge_start_date on challenge (start_date);
+
+-- Submission counts and listings per team and challenge
+create index ix_submission_team_challenge on submission (team_id, challenge_id);
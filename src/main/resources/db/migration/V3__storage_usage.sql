@@ -0,0 +1,25 @@
+-- Size and SHA-256 of each submission file, recorded at upload time. Existing rows get their size from
+-- SubmissionSizeBackfill after startup; their hash stays empty.
+alter table submission add column size bigint;
+alter table submission add column sha256 varchar(64);
+
+-- Usage counters, updated in the same transaction as the submission rows they count
+create table team_usage (
+    team_id bigint not null,
+    bytes bigint not null,
+    files bigint not null,
+    primary key (team_id)
+);
+
+create table challenge_usage (
+    challenge_id bigint not null,
+    bytes bigint not null,
+    files bigint not null,
+    primary key (challenge_id)
+);
+
+insert into team_usage (team_id, bytes, files)
+select team_id, 0, count(*) from submission where team_id is not null group by team_id;
+
+insert into challenge_usage (challenge_id, bytes, files)
+select challenge_id, 0, count(*) from submission where challenge_id is not null group by challenge_id;
@@ -0,0 +1,12 @@
+-- Set by StorageReconciler when the file of a submission is missing, cleared when it shows up again
+alter table submission add column file_missing_since datetime(6);
+
+-- Where StorageReconciler continues its pass, so a restart does not start over
+create table storage_reconciliation (
+    id integer not null,
+    last_challenge_directory bigint not null,
+    last_submission_id bigint not null,
+    primary key (id)
+);
+
+insert into storage_reconciliation (id, last_challenge_directory, last_submission_id) values (1, -1, 0);
@@ -0,0 +1,106 @@
+package software.mindware.taskmaster.config;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import software.mindware.taskmaster.model.Challenge;
+import software.mindware.taskmaster.repository.ChallengeRepository;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs against two in-memory H2 databases standing in for the primary and the replica. Rows that only exist in one of
+ * them show where a query went.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primary;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "datasource.replica.url=" + ReadReplicaRoutingTests.REPLICA_URL
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ReadReplicaConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReadReplicaRoutingTests {
+    static final String REPLICA_URL = "jdbc:h2:mem:replica;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private ChallengeRepository challengeRepository;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    @BeforeAll
+    static void migrateReplica() {
+        Flyway.configure().dataSource(REPLICA_URL, "sa", "").load().migrate();
+    }
+
+    @AfterEach
+    void deleteChallenges() {
+        new JdbcTemplate(this.primaryDataSource).update("delete from challenge");
+        new JdbcTemplate(this.replicaDataSource).update("delete from challenge");
+    }
+
+    @Test
+    void readsUseReplicaOnlyWhereAllowed() {
+        insertChallenge(this.replicaDataSource, "replica only");
+
+        assertThat(this.challengeRepository.count()).isZero();
+        try (ReplicaRouting.Scope scope = ReplicaRouting.allowReplica()) {
+            assertThat(this.challengeRepository.findAll()).extracting(Challenge::getTitle).containsExactly("replica only");
+            assertThat(this.challengeRepository.findSummariesStartedBefore(Instant.now())).hasSize(1);
+        }
+    }
+
+    @Test
+    void writesGoToPrimary() {
+        try (ReplicaRouting.Scope scope = ReplicaRouting.allowReplica()) {
+            Challenge challenge = new Challenge();
+            challenge.setTitle("written");
+            challenge.setStartDate(Instant.now());
+            this.challengeRepository.save(challenge);
+        }
+
+        assertThat(count(this.primaryDataSource)).isEqualTo(1);
+        assertThat(count(this.replicaDataSource)).isZero();
+    }
+
+    @Test
+    void primaryOnlyOverridesAllowReplica() {
+        insertChallenge(this.primaryDataSource, "primary only");
+
+        try (ReplicaRouting.Scope replica = ReplicaRouting.allowReplica()) {
+            try (ReplicaRouting.Scope primary = ReplicaRouting.primaryOnly()) {
+                assertThat(this.challengeRepository.count()).isEqualTo(1);
+            }
+            assertThat(this.challengeRepository.count()).isZero();
+        }
+    }
+
+    private static void insertChallenge(DataSource dataSource, String title) {
+        new JdbcTemplate(dataSource).update("insert into challenge (title, start_date) values (?, ?)",
+                title, Timestamp.from(Instant.now().minusSeconds(60)));
+    }
+
+    private static int count(DataSource dataSource) {
+        return new JdbcTemplate(dataSource).queryForObject("select count(*) from challenge", Integer.class);
+    }
+}
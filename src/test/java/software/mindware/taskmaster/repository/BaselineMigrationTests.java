@@ -0,0 +1,63 @@
+package software.mindware.taskmaster.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Migrates databases that were created by {@code ddl-auto=update} and are baselined at V1, like on the first start
+ * with Flyway.
+ */
+class BaselineMigrationTests {
+    private static final String ORIGINAL_SCHEMA = """
+            create table challenge (id bigint not null auto_increment, title varchar(255), description varchar(255),
+                start_date datetime(6), primary key (id));
+            create table team (id bigint not null auto_increment, team_name varchar(255), code varchar(255),
+                primary key (id));
+            create table team_authentication_codes (team_id bigint not null, authentication_codes varchar(255));
+            create table submission (id bigint not null auto_increment, file_name varchar(255), uploaded_at datetime(6),
+                challenge_id bigint, team_id bigint, primary key (id));
+            insert into team (team_name, code) values ('alpha', 'code');
+            """;
+
+    @Test
+    void originalSchemaGetsLaterColumnsAndTables() {
+        JdbcTemplate jdbcTemplate = migrate("original", ORIGINAL_SCHEMA);
+
+        assertThat(jdbcTemplate.queryForObject("select token_epoch from team where team_name = 'alpha'", Integer.class)).isZero();
+        jdbcTemplate.update("insert into upload_session (id, size, received_bytes) values ('a', 10, 0)");
+        jdbcTemplate.update("update challenge set max_concurrent_uploads_per_team = 1, upload_bytes_per_second_per_team = 1");
+    }
+
+    @Test
+    void columnsAndTablesCreatedByDdlAutoAreKept() {
+        JdbcTemplate jdbcTemplate = migrate("updated", ORIGINAL_SCHEMA + """
+                alter table team add column token_epoch integer not null default 0;
+                update team set token_epoch = 3;
+                alter table challenge add column max_concurrent_uploads_per_team integer;
+                alter table challenge add column upload_bytes_per_second_per_team bigint;
+                create table upload_session (id varchar(255) not null, team_id bigint, team_name varchar(255),
+                    challenge_id bigint, file_name varchar(255), content_type varchar(255), size bigint not null,
+                    received_bytes bigint not null, created_at datetime(6), updated_at datetime(6), primary key (id));
+                insert into upload_session (id, size, received_bytes) values ('a', 10, 4);
+                """);
+
+        assertThat(jdbcTemplate.queryForObject("select token_epoch from team where team_name = 'alpha'", Integer.class)).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject("select received_bytes from upload_session where id = 'a'", Long.class)).isEqualTo(4);
+    }
+
+    private static JdbcTemplate migrate(String name, String schema) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        for (String statement : schema.split(";")) {
+            if (!statement.isBlank()) {
+                jdbcTemplate.execute(statement);
+            }
+        }
+        Flyway.configure().dataSource(dataSource).baselineOnMigrate(true).baselineVersion("1").load().migrate();
+        return jdbcTemplate;
+    }
+}
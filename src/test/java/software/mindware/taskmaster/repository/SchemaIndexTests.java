@@ -0,0 +1,66 @@
+package software.mindware.taskmaster.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import software.mindware.taskmaster.model.Team;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the Flyway migrations against H2 in MySQL mode and checks that the hot queries are planned on their indexes.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:schema;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password="
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class SchemaIndexTests {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TeamRepository teamRepository;
+
+    @Test
+    void teamLookupByNameUsesUniqueIndex() {
+        assertThat(explain("select * from team where team_name = 'alpha' limit 1"))
+                .containsIgnoringCase("uk_team_team_name");
+    }
+
+    @Test
+    void currentChallengeLookupUsesStartDateIndex() {
+        assertThat(explain("select * from challenge where start_date < current_timestamp order by start_date desc limit 1"))
+                .containsIgnoringCase("ix_challenge_start_date");
+    }
+
+    @Test
+    void submissionsOfTeamForChallengeUseCompositeIndex() {
+        assertThat(explain("select count(*) from submission where team_id = 1 and challenge_id = 2"))
+                .containsIgnoringCase("ix_submission_team_challenge");
+    }
+
+    @Test
+    void teamNamesAreUnique() {
+        this.teamRepository.saveAndFlush(team("alpha"));
+
+        assertThatThrownBy(() -> this.teamRepository.saveAndFlush(team("alpha")))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    private String explain(String sql) {
+        return this.jdbcTemplate.queryForObject("explain " + sql, String.class);
+    }
+
+    private static Team team(String name) {
+        Team team = new Team();
+        team.setTeamName(name);
+        team.setCode("code");
+        return team;
+    }
+}
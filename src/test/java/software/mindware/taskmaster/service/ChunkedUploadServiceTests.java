@@ -0,0 +1,144 @@
+package software.mindware.taskmaster.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import software.mindware.taskmaster.dto.ChallengeSummary;
+import software.mindware.taskmaster.model.Challenge;
+import software.mindware.taskmaster.model.Team;
+import software.mindware.taskmaster.model.UploadSession;
+import software.mindware.taskmaster.repository.ChallengeRepository;
+import software.mindware.taskmaster.repository.TeamRepository;
+import software.mindware.taskmaster.repository.UploadSessionRepository;
+import software.mindware.taskmaster.service.ChunkedUploadService.ChunkResult;
+import software.mindware.taskmaster.service.ChunkedUploadService.ChunkStatus;
+import software.mindware.taskmaster.service.ChunkedUploadService.CompleteResult;
+import software.mindware.taskmaster.service.ChunkedUploadService.CompleteStatus;
+import software.mindware.taskmaster.service.TeamTokenService.TeamToken;
+import software.mindware.taskmaster.storage.LocalSubmissionStorage;
+import software.mindware.taskmaster.storage.SubmissionStorage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sends the chunks of resumable uploads out of order, again after a lost acknowledgement and while another node
+ * records progress for the same session, then completes them.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:chunked;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password="
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ChunkedUploadService.class, StorageUsageService.class, LocalSubmissionStorage.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ChunkedUploadServiceTests {
+    @TempDir
+    private static Path uploadDir;
+
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @Autowired
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Autowired
+    private TeamRepository teamRepository;
+
+    @Autowired
+    private ChallengeRepository challengeRepository;
+
+    @Autowired
+    private SubmissionStorage submissionStorage;
+
+    private TeamToken team;
+    private ChallengeSummary challenge;
+
+    @DynamicPropertySource
+    static void uploadDir(DynamicPropertyRegistry registry) {
+        registry.add("upload.dir", () -> uploadDir.toString());
+    }
+
+    @BeforeEach
+    void createTeamAndChallenge() {
+        Team team = new Team();
+        team.setTeamName("chunked_" + System.nanoTime());
+        team.setCode("code");
+        team = this.teamRepository.save(team);
+        Challenge challenge = new Challenge();
+        challenge.setTitle("chunked");
+        challenge.setStartDate(Instant.now());
+        challenge = this.challengeRepository.save(challenge);
+        this.team = new TeamToken(team.getId(), team.getTeamName(), null, null);
+        this.challenge = new ChallengeSummary(challenge.getId(), challenge.getTitle(), null, challenge.getStartDate());
+    }
+
+    @Test
+    void uploadResumesFromTheReceivedBytesAndCompletes() throws IOException {
+        UploadSession session = this.chunkedUploadService.initiate(this.team, this.challenge, "image/jpeg", 10);
+        String id = session.getId();
+        assertThat(session.getFileName()).endsWith(".jpg");
+
+        assertThat(this.chunkedUploadService.writeChunk(id, 0, body("01234"))).isEqualTo(new ChunkResult(ChunkStatus.OK, 5));
+        // Ahead of what arrived, the client has to resume from the returned offset
+        assertThat(this.chunkedUploadService.writeChunk(id, 7, body("789"))).isEqualTo(new ChunkResult(ChunkStatus.OFFSET_MISMATCH, 5));
+        // Partly sent before, e.g. after a lost acknowledgement
+        assertThat(this.chunkedUploadService.writeChunk(id, 3, body("34567"))).isEqualTo(new ChunkResult(ChunkStatus.OK, 8));
+        assertThat(this.chunkedUploadService.complete(id).status()).isEqualTo(CompleteStatus.INCOMPLETE);
+
+        assertThat(this.chunkedUploadService.writeChunk(id, 8, body("89"))).isEqualTo(new ChunkResult(ChunkStatus.OK, 10));
+        CompleteResult result = this.chunkedUploadService.complete(id);
+
+        assertThat(result.status()).isEqualTo(CompleteStatus.OK);
+        assertThat(result.submission().getSize()).isEqualTo(10);
+        assertThat(this.uploadSessionRepository.findById(id)).isEmpty();
+        try (InputStream in = this.submissionStorage.openInputStream(session.getFileName())) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("0123456789");
+        }
+    }
+
+    @Test
+    void bytesBeyondTheSizeAreRejected() throws IOException {
+        String id = this.chunkedUploadService.initiate(this.team, this.challenge, "image/jpeg", 4).getId();
+
+        assertThat(this.chunkedUploadService.writeChunk(id, 0, body("012345"))).isEqualTo(new ChunkResult(ChunkStatus.TOO_LARGE, 4));
+        assertThat(this.chunkedUploadService.writeChunk("unknown", 0, body("0"))).isEqualTo(new ChunkResult(ChunkStatus.NOT_FOUND, -1));
+    }
+
+    @Test
+    void progressRecordedByAnotherNodeWins() throws IOException {
+        String id = this.chunkedUploadService.initiate(this.team, this.challenge, "image/jpeg", 10).getId();
+        // Another node records 4 bytes while this one is still reading its chunk
+        InputStream body = new ByteArrayInputStream("01234567".getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public synchronized int read(byte[] buffer, int offset, int length) {
+                if (pos == 0) {
+                    uploadSessionRepository.updateReceivedBytes(id, 0, 4, Instant.now());
+                }
+                return super.read(buffer, offset, length);
+            }
+        };
+
+        assertThat(this.chunkedUploadService.writeChunk(id, 0, body)).isEqualTo(new ChunkResult(ChunkStatus.OFFSET_MISMATCH, 4));
+        assertThat(this.uploadSessionRepository.findById(id)).hasValueSatisfying(session -> assertThat(session.getReceivedBytes()).isEqualTo(4));
+    }
+
+    private static InputStream body(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,132 @@
+package software.mindware.taskmaster.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import software.mindware.taskmaster.model.Challenge;
+import software.mindware.taskmaster.model.Submission;
+import software.mindware.taskmaster.model.Team;
+import software.mindware.taskmaster.repository.ChallengeRepository;
+import software.mindware.taskmaster.repository.SubmissionRepository;
+import software.mindware.taskmaster.repository.TeamRepository;
+import software.mindware.taskmaster.storage.LocalSubmissionStorage;
+import software.mindware.taskmaster.storage.SubmissionStorage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Deletes the submissions of one team for a challenge: the rows and usage counters change right away, the files are
+ * reclaimed by the returned job, and submissions of other teams are left alone.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:deletion;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "deletion.batch-size=2"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({DeletionService.class, StorageUsageService.class, LocalSubmissionStorage.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DeletionServiceTests {
+    @TempDir
+    private static Path uploadDir;
+
+    @MockitoBean
+    private PreviewService previewService;
+
+    @MockitoBean
+    private SubmissionFeed submissionFeed;
+
+    @MockitoBean
+    private ExportArchiveService exportArchiveService;
+
+    @Autowired
+    private DeletionService deletionService;
+
+    @Autowired
+    private StorageUsageService storageUsageService;
+
+    @Autowired
+    private SubmissionStorage submissionStorage;
+
+    @Autowired
+    private SubmissionRepository submissionRepository;
+
+    @Autowired
+    private TeamRepository teamRepository;
+
+    @Autowired
+    private ChallengeRepository challengeRepository;
+
+    @DynamicPropertySource
+    static void uploadDir(DynamicPropertyRegistry registry) {
+        registry.add("upload.dir", () -> uploadDir.toString());
+    }
+
+    @Test
+    void rowsGoAtOnceAndFilesAreReclaimedInTheBackground() throws IOException {
+        Team team = team("deleted");
+        Team otherTeam = team("kept");
+        Challenge challenge = new Challenge();
+        challenge.setTitle("deletion");
+        challenge.setStartDate(Instant.now());
+        challenge = this.challengeRepository.save(challenge);
+        String first = store(team, challenge);
+        String second = store(team, challenge);
+        String third = store(team, challenge);
+        String kept = store(otherTeam, challenge);
+
+        DeletionJob job = this.deletionService.deleteTeamSubmissionsForChallenge(team.getId(), challenge.getId());
+
+        assertThat(job.getTotalFiles()).isEqualTo(3);
+        assertThat(this.submissionRepository.findFileNamesByChallengeId(challenge.getId())).containsExactly(kept);
+        assertThat(this.storageUsageService.getUsage().getTotalFiles()).isEqualTo(1);
+        verify(this.exportArchiveService).scheduleUpdate(challenge.getId());
+
+        await().atMost(Duration.ofSeconds(10)).until(() -> job.getState() == DeletionJob.State.DONE);
+        assertThat(job.getDeletedFiles()).isEqualTo(3);
+        assertThat(job.getFailedFiles()).isZero();
+        assertThat(this.deletionService.getJob(job.getId())).containsSame(job);
+        for (String fileName : new String[]{first, second, third}) {
+            assertThat(this.submissionStorage.exists(fileName)).isFalse();
+            verify(this.previewService).deletePreviews(fileName);
+        }
+        assertThat(this.submissionStorage.exists(kept)).isTrue();
+    }
+
+    private Team team(String name) {
+        Team team = new Team();
+        team.setTeamName(name);
+        team.setCode("code");
+        return this.teamRepository.save(team);
+    }
+
+    private String store(Team team, Challenge challenge) throws IOException {
+        String fileName = this.submissionStorage.createKey(team.getTeamName(), challenge.getId(), ".jpg");
+        this.submissionStorage.write(fileName, new ByteArrayInputStream(new byte[10]));
+        Submission submission = new Submission();
+        submission.setTeam(team);
+        submission.setChallenge(challenge);
+        submission.setUploadedAt(Instant.now());
+        submission.setFileName(fileName);
+        submission.setSize(10L);
+        this.storageUsageService.save(submission);
+        return fileName;
+    }
+}
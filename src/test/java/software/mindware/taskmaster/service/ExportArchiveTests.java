@@ -0,0 +1,184 @@
+package software.mindware.taskmaster.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.mindware.taskmaster.storage.LocalSubmissionStorage;
+import software.mindware.taskmaster.storage.SubmissionStorage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIOException;
+
+/**
+ * Reads the archives back with {@link ZipFile} after appending, compacting, with a snapshot that was taken before
+ * a later append and after an append that failed halfway, and checks when an archive counts as up to date.
+ */
+class ExportArchiveTests {
+    private static final String KEY = "exports/challenge_1.zip";
+
+    @TempDir
+    private Path uploadDir;
+
+    @Test
+    void appendedEntriesCanBeRead() throws IOException {
+        SubmissionStorage storage = new LocalSubmissionStorage(this.uploadDir.toString());
+        String first = store(storage, "first");
+        String second = store(storage, "second");
+        String third = store(storage, "third");
+
+        ExportArchive archive = new ExportArchive(storage, KEY);
+        assertThat(archive.update(List.of(first, second))).isTrue();
+        assertThat(read(this.uploadDir.resolve(KEY))).containsExactly(
+                Map.entry(SubmissionStorage.fileName(first), "first"),
+                Map.entry(SubmissionStorage.fileName(second), "second"));
+
+        // Loaded from the central directory on disk, like after a restart
+        ExportArchive reopened = new ExportArchive(storage, KEY);
+        assertThat(reopened.update(List.of(first, second))).isFalse();
+        assertThat(reopened.update(List.of(first, second, third))).isTrue();
+        assertThat(read(this.uploadDir.resolve(KEY))).containsExactly(
+                Map.entry(SubmissionStorage.fileName(first), "first"),
+                Map.entry(SubmissionStorage.fileName(second), "second"),
+                Map.entry(SubmissionStorage.fileName(third), "third"));
+    }
+
+    @Test
+    void compactionKeepsRemainingEntries() throws IOException {
+        SubmissionStorage storage = new LocalSubmissionStorage(this.uploadDir.toString());
+        String first = store(storage, "first");
+        String second = store(storage, "second");
+        String third = store(storage, "third");
+        String fourth = store(storage, "fourth");
+
+        ExportArchive archive = new ExportArchive(storage, KEY);
+        archive.update(List.of(first, second, third));
+        assertThat(archive.update(List.of(first, third))).isTrue();
+        assertThat(read(this.uploadDir.resolve(KEY))).containsExactly(
+                Map.entry(SubmissionStorage.fileName(first), "first"),
+                Map.entry(SubmissionStorage.fileName(third), "third"));
+
+        archive.update(List.of(first, third, fourth));
+        assertThat(read(this.uploadDir.resolve(KEY))).containsExactly(
+                Map.entry(SubmissionStorage.fileName(first), "first"),
+                Map.entry(SubmissionStorage.fileName(third), "third"),
+                Map.entry(SubmissionStorage.fileName(fourth), "fourth"));
+    }
+
+    @Test
+    void snapshotIsNotAffectedByLaterAppends() throws IOException {
+        SubmissionStorage storage = new LocalSubmissionStorage(this.uploadDir.toString());
+        String first = store(storage, "first");
+        String second = store(storage, "second");
+
+        ExportArchive archive = new ExportArchive(storage, KEY);
+        archive.update(List.of(first));
+        Path snapshotFile = this.uploadDir.resolve("snapshot.zip");
+        try (ExportArchive.Snapshot snapshot = archive.snapshot()) {
+            archive.update(List.of(first, second));
+
+            try (OutputStream out = Files.newOutputStream(snapshotFile)) {
+                snapshot.writeTo(out);
+            }
+            assertThat(Files.size(snapshotFile)).isEqualTo(snapshot.length());
+        }
+
+        assertThat(read(snapshotFile)).containsExactly(Map.entry(SubmissionStorage.fileName(first), "first"));
+        assertThat(read(this.uploadDir.resolve(KEY))).containsExactly(
+                Map.entry(SubmissionStorage.fileName(first), "first"),
+                Map.entry(SubmissionStorage.fileName(second), "second"));
+    }
+
+    @Test
+    void failedAppendIsBuiltAgain() throws IOException {
+        String[] failing = new String[1];
+        SubmissionStorage storage = new LocalSubmissionStorage(this.uploadDir.toString()) {
+            @Override
+            public SeekableByteChannel openChannel(String key, OpenOption... options) throws IOException {
+                if (key.equals(failing[0])) {
+                    throw new IOException("Disk error");
+                }
+                return super.openChannel(key, options);
+            }
+        };
+        String first = store(storage, "first");
+        String second = store(storage, "second");
+        String third = store(storage, "third");
+        String fourth = store(storage, "fourth");
+
+        ExportArchive archive = new ExportArchive(storage, KEY);
+        archive.update(List.of(first));
+        failing[0] = third;
+        assertThatIOException().isThrownBy(() -> archive.update(List.of(first, second, third)));
+
+        failing[0] = null;
+        assertThat(archive.update(List.of(first, second, third, fourth))).isTrue();
+        assertThat(read(this.uploadDir.resolve(KEY))).containsExactly(
+                Map.entry(SubmissionStorage.fileName(first), "first"),
+                Map.entry(SubmissionStorage.fileName(second), "second"),
+                Map.entry(SubmissionStorage.fileName(third), "third"),
+                Map.entry(SubmissionStorage.fileName(fourth), "fourth"));
+    }
+
+    @Test
+    void archiveIsOnlyCurrentWithAllSubmissionsAndWhileNotLocked() throws Exception {
+        SubmissionStorage storage = new LocalSubmissionStorage(this.uploadDir.toString());
+        String first = store(storage, "first");
+        String second = store(storage, "second");
+
+        ExportArchive archive = new ExportArchive(storage, KEY);
+        try (ExportArchive.Lock lock = archive.lock()) {
+            archive.update(List.of(first));
+            assertThat(archive.isCurrent(List.of(first))).isTrue();
+            assertThat(archive.isCurrent(List.of(first, second))).isFalse();
+            assertThat(archive.isCurrent(List.of())).isFalse();
+
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                assertThat(executor.submit(archive::tryLock).get()).isNull();
+            } finally {
+                executor.shutdown();
+            }
+        }
+        try (ExportArchive.Lock lock = archive.tryLock()) {
+            assertThat(lock).isNotNull();
+            assertThat(archive.isCurrent(List.of(first))).isTrue();
+        }
+    }
+
+    private static String store(SubmissionStorage storage, String content) throws IOException {
+        String key = storage.createKey("team", 1, ".txt");
+        try (SeekableByteChannel channel = storage.openChannel(key, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8)));
+        }
+        return key;
+    }
+
+    /**
+     * @return the contents of the entries by name, in the order of the central directory
+     */
+    private static Map<String, String> read(Path zip) throws IOException {
+        Map<String, String> contents = new LinkedHashMap<>();
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            for (ZipEntry entry : zipFile.stream().toList()) {
+                contents.put(entry.getName(), new String(zipFile.getInputStream(entry).readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return contents;
+    }
+}
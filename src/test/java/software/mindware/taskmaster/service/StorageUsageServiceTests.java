@@ -0,0 +1,96 @@
+package software.mindware.taskmaster.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import software.mindware.taskmaster.dto.StorageUsage;
+import software.mindware.taskmaster.dto.StorageUsage.UsageEntry;
+import software.mindware.taskmaster.model.Challenge;
+import software.mindware.taskmaster.model.Submission;
+import software.mindware.taskmaster.model.Team;
+import software.mindware.taskmaster.repository.ChallengeRepository;
+import software.mindware.taskmaster.repository.SubmissionRepository;
+import software.mindware.taskmaster.repository.TeamRepository;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the usage counters follow saves and deletes, and that the quotas are enforced when saving.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:usage;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "upload.quota.team=1000B"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(StorageUsageService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StorageUsageServiceTests {
+    @Autowired
+    private StorageUsageService storageUsageService;
+
+    @Autowired
+    private TeamRepository teamRepository;
+
+    @Autowired
+    private ChallengeRepository challengeRepository;
+
+    @Autowired
+    private SubmissionRepository submissionRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void countersFollowSavesAndDeletesAndEnforceQuota() {
+        Team team = new Team();
+        team.setTeamName("usage");
+        team.setCode("code");
+        team = this.teamRepository.save(team);
+        Challenge challenge = new Challenge();
+        challenge.setTitle("usage");
+        challenge.setStartDate(Instant.now());
+        challenge = this.challengeRepository.save(challenge);
+
+        assertThat(this.storageUsageService.save(submission(team, challenge, 600))).isPresent();
+        assertThat(this.storageUsageService.fitsQuota(team.getId(), challenge.getId(), 400)).isTrue();
+        assertThat(this.storageUsageService.fitsQuota(team.getId(), challenge.getId(), 401)).isFalse();
+        assertThat(this.storageUsageService.save(submission(team, challenge, 500))).isEmpty();
+        assertThat(this.storageUsageService.save(submission(team, challenge, 400))).isPresent();
+
+        StorageUsage usage = this.storageUsageService.getUsage();
+        assertThat(usage.getTotalBytes()).isEqualTo(1000);
+        assertThat(usage.getTotalFiles()).isEqualTo(2);
+        assertThat(usage.getTeams()).containsExactly(new UsageEntry(team.getId(), 1000, 2));
+        assertThat(this.submissionRepository.count()).isEqualTo(2);
+
+        long teamId = team.getId();
+        long challengeId = challenge.getId();
+        this.transactionTemplate.executeWithoutResult(status -> {
+            this.storageUsageService.subtract(teamId, challengeId);
+            this.submissionRepository.deleteAllByTeamIdAndChallengeId(teamId, challengeId);
+        });
+
+        usage = this.storageUsageService.getUsage();
+        assertThat(usage.getTotalBytes()).isZero();
+        assertThat(usage.getTotalFiles()).isZero();
+    }
+
+    private static Submission submission(Team team, Challenge challenge, long size) {
+        Submission submission = new Submission();
+        submission.setTeam(team);
+        submission.setChallenge(challenge);
+        submission.setUploadedAt(Instant.now());
+        submission.setFileName("file_" + size);
+        submission.setSize(size);
+        return submission;
+    }
+}
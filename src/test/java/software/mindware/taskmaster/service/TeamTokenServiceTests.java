@@ -0,0 +1,126 @@
+package software.mindware.taskmaster.service;
+
+import org.junit.jupiter.api.Test;
+import software.mindware.taskmaster.model.Team;
+import software.mindware.taskmaster.repository.TeamRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies signed tokens against a mocked repository: forged, expired and revoked tokens are rejected, and legacy
+ * tokens are only accepted while they are enabled.
+ */
+class TeamTokenServiceTests {
+    private static final String SECRET = "test-secret";
+
+    private final TeamRepository teamRepository = mock(TeamRepository.class);
+
+    @Test
+    void issuedTokenIsAccepted() {
+        TeamTokenService service = service(Duration.ofHours(1), true);
+        Team team = team(0);
+        when(this.teamRepository.findTokenEpochById(1L)).thenReturn(Optional.of(0));
+
+        Optional<TeamTokenService.TeamToken> token = service.verify(service.issue(team));
+
+        assertThat(token).isPresent();
+        assertThat(token.get().teamId()).isEqualTo(1);
+        assertThat(token.get().teamName()).isEqualTo("alpha");
+    }
+
+    @Test
+    void tamperedTokenIsRejected() {
+        TeamTokenService service = service(Duration.ofHours(1), true);
+        when(this.teamRepository.findTokenEpochById(1L)).thenReturn(Optional.of(0));
+        String token = service.issue(team(0));
+        int dot = token.lastIndexOf('.');
+        String payload = token.substring("tm1.".length(), dot);
+        String signature = token.substring(dot + 1);
+
+        String otherSignature = (signature.charAt(0) == 'A' ? "B" : "A") + signature.substring(1);
+        assertThat(service.verify("tm1." + payload + "." + otherSignature)).isEmpty();
+
+        String decoded = new String(Base64.getUrlDecoder().decode(payload), StandardCharsets.UTF_8);
+        String otherPayload = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(decoded.replace(":alpha", ":bravo").getBytes(StandardCharsets.UTF_8));
+        assertThat(service.verify("tm1." + otherPayload + "." + signature)).isEmpty();
+
+        TeamTokenService otherSecret = new TeamTokenService(this.teamRepository, "other-secret", Duration.ofHours(1), true, Duration.ofSeconds(30), false);
+        assertThat(otherSecret.verify(token)).isEmpty();
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        TeamTokenService service = service(Duration.ZERO, true);
+        when(this.teamRepository.findTokenEpochById(1L)).thenReturn(Optional.of(0));
+
+        assertThat(service.verify(service.issue(team(0)))).isEmpty();
+    }
+
+    @Test
+    void tokenOfOlderEpochIsRejected() {
+        TeamTokenService service = service(Duration.ofHours(1), true);
+        Team team = team(0);
+        String token = service.issue(team);
+        when(this.teamRepository.findTokenEpochById(1L)).thenReturn(Optional.of(0));
+        assertThat(service.verify(token)).isPresent();
+
+        service.revoke(team);
+
+        assertThat(team.getTokenEpoch()).isEqualTo(1);
+        assertThat(service.verify(token)).isEmpty();
+    }
+
+    @Test
+    void epochBumpedOnAnotherNodeIsSeenAfterTheCacheExpires() {
+        TeamTokenService service = new TeamTokenService(this.teamRepository, SECRET, Duration.ofHours(1), true, Duration.ZERO, false);
+        String token = service.issue(team(0));
+        when(this.teamRepository.findTokenEpochById(1L)).thenReturn(Optional.of(1));
+
+        assertThat(service.verify(token)).isEmpty();
+    }
+
+    @Test
+    void legacyTokenIsOnlyAcceptedWhileEnabled() {
+        Team team = team(0);
+        team.getAuthenticationCodes().add("code");
+        when(this.teamRepository.findFirstByTeamName("alpha")).thenReturn(Optional.of(team));
+
+        TeamTokenService service = service(Duration.ofHours(1), true);
+        assertThat(service.verify("alpha_code")).hasValueSatisfying(token -> assertThat(token.teamId()).isEqualTo(1));
+        assertThat(service.verify("alpha_other")).isEmpty();
+        assertThat(service(Duration.ofHours(1), false).verify("alpha_code")).isEmpty();
+    }
+
+    @Test
+    void missingSecretFailsUnlessRandomSecretIsAllowed() {
+        assertThatIllegalStateException().isThrownBy(() ->
+                new TeamTokenService(this.teamRepository, "", Duration.ofHours(1), true, Duration.ofSeconds(30), false));
+
+        TeamTokenService service = new TeamTokenService(this.teamRepository, "", Duration.ofHours(1), true, Duration.ofSeconds(30), true);
+        when(this.teamRepository.findTokenEpochById(1L)).thenReturn(Optional.of(0));
+        assertThat(service.verify(service.issue(team(0)))).isPresent();
+    }
+
+    private TeamTokenService service(Duration ttl, boolean legacyEnabled) {
+        return new TeamTokenService(this.teamRepository, SECRET, ttl, legacyEnabled, Duration.ofSeconds(30), false);
+    }
+
+    private static Team team(int tokenEpoch) {
+        Team team = new Team();
+        team.setId(1L);
+        team.setTeamName("alpha");
+        team.setTokenEpoch(tokenEpoch);
+        team.setAuthenticationCodes(new ArrayList<>());
+        return team;
+    }
+}